@@ -0,0 +1,125 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.easymock.IMocksControl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures a call on a mock in replay state. Run with the GC profiler ({@code -prof gc} or the {@link #main(String[])}
+ * of this class) to get the bytes allocated per replayed call ({@code gc.alloc.rate.norm}).
+ */
+@Fork(2)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 4, time = 1, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ReplayBenchmark {
+
+    public interface Service {
+        String get(int key);
+
+        String find(int id, Object owner, String name);
+
+        int sum(int... values);
+
+        void log(String message);
+    }
+
+    private Service expectation;
+
+    private Service stub;
+
+    private Service nice;
+
+    private final int[] values = { 1, 2, 3 };
+
+    private final Object owner = new Object();
+
+    @Setup
+    public void setup() {
+        IMocksControl control = EasyMock.createControl();
+        expectation = control.createMock(Service.class);
+        EasyMock.expect(expectation.get(1)).andReturn("a").anyTimes();
+        EasyMock.expect(expectation.sum(1, 2, 3)).andReturn(6).anyTimes();
+        EasyMock.expect(expectation.find(EasyMock.anyInt(), EasyMock.same(owner), EasyMock.eq("name")))
+            .andReturn("b").anyTimes();
+        control.replay();
+
+        stub = EasyMock.createMock(Service.class);
+        EasyMock.expect(stub.get(1)).andStubReturn("a");
+        EasyMock.replay(stub);
+
+        nice = EasyMock.createNiceMock(Service.class);
+        EasyMock.replay(nice);
+    }
+
+    @Benchmark
+    public String expectation() {
+        return expectation.get(1);
+    }
+
+    @Benchmark
+    public String expectationMatchers() {
+        return expectation.find(1, owner, "name");
+    }
+
+    @Benchmark
+    public int expectationVarargs() {
+        return expectation.sum(values);
+    }
+
+    @Benchmark
+    public String stub() {
+        return stub.get(1);
+    }
+
+    @Benchmark
+    public int niceVarargs() {
+        return nice.sum(values);
+    }
+
+    @Benchmark
+    public void niceVoid() {
+        nice.log("message");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(ReplayBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
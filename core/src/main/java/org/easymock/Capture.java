@@ -15,13 +15,37 @@
  */
 package org.easymock;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Will contain what was captured by the {@code capture()} matcher. Knows
  * if something was captured or not (allows to capture a null value).
+ * <p>
+ * The values are kept in a growable array used as a ring buffer, so a
+ * {@link CaptureType#LAST_N} capture never keeps more than its size. The
+ * values captured by {@link EasyMock#captureInt(Capture)},
+ * {@link EasyMock#captureLong(Capture)} and
+ * {@link EasyMock#captureDouble(Capture)} are kept in a primitive array.
+ * <p>
+ * A streaming capture, created with {@link #newInstance(Consumer)}, keeps
+ * nothing. Each captured value is given to a consumer instead.
+ * <p>
+ * A capture can be fed by mocks called from many threads. Captured values are
+ * queued without locking and moved to the kept values when they are read, or
+ * when too many are waiting. So the capture doesn't depend on the lock of the
+ * mocks. The consumer of a streaming capture is called directly by the
+ * calling threads, it should be thread-safe if the mocks are.
  *
  * @param <T>
  *            Type of the captured element
@@ -30,11 +54,46 @@ import java.util.List;
  */
 public class Capture<T> implements Serializable {
 
-    private static final long serialVersionUID = -4214363692271370781L;
+    private static final long serialVersionUID = 2840593354124557895L;
+
+    private static final int INITIAL_CAPACITY = 2;
+
+    /** Number of queued values after which a capturing thread moves them to the store, if nobody else does */
+    private static final int DRAIN_THRESHOLD = 64;
+
+    /** Stands for null in the queue of captured values */
+    private enum NullValue {
+        INSTANCE
+    }
 
     private final CaptureType type;
 
-    private final List<T> values = new ArrayList<>(2);
+    /** Maximum number of values kept */
+    private final int maxSize;
+
+    private Store store = new ObjectStore(INITIAL_CAPACITY);
+
+    /** Index in the store of the oldest value */
+    private int start;
+
+    private int size;
+
+    /** Guards the store */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Values captured but not yet moved to the store */
+    private final ConcurrentLinkedQueue<Object> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Approximate number of queued values. A {@code LongAdder} so the capturing threads don't all update the same
+     * counter
+     */
+    private final LongAdder pendingCount = new LongAdder();
+
+    private transient List<T> view;
+
+    /** Receives the captured values of a streaming capture. Not serialized */
+    private transient Consumer<? super T> consumer;
 
     /**
      * Default constructor. Only the last element will be captured
@@ -50,7 +109,18 @@ public class Capture<T> implements Serializable {
      *            capture type
      */
     private Capture(CaptureType type) {
+        this(type, type == CaptureType.LAST ? 1 : Integer.MAX_VALUE);
+        if (type == CaptureType.LAST_N) {
+            throw new IllegalArgumentException("The number of values to keep is needed for " + type);
+        }
+    }
+
+    private Capture(CaptureType type, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("At least one value should be kept");
+        }
         this.type = type;
+        this.maxSize = maxSize;
     }
 
     /**
@@ -74,18 +144,74 @@ public class Capture<T> implements Serializable {
         return new Capture<>(type);
     }
 
+    /**
+     * Create a new capture instance keeping the last {@code size} captured values.
+     *
+     * @param type capture type wanted, only {@link CaptureType#LAST_N} is supported
+     * @param size maximum number of values kept
+     * @param <T> type of the class to be captured
+     * @return the new capture object
+     */
+    public static <T> Capture<T> newInstance(CaptureType type, int size) {
+        if (type != CaptureType.LAST_N) {
+            throw new IllegalArgumentException("A size can only be given for " + CaptureType.LAST_N);
+        }
+        return new Capture<>(type, size);
+    }
+
+    /**
+     * Create a new capture instance that keeps nothing but gives each captured
+     * value to a consumer as soon as the call matches. Useful to compute
+     * aggregates over a lot of calls without keeping all the arguments.
+     *
+     * @param consumer receives each captured value
+     * @param <T> type of the class to be captured
+     * @return the new capture object
+     */
+    public static <T> Capture<T> newInstance(Consumer<? super T> consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        Capture<T> capture = new Capture<>(CaptureType.NONE);
+        capture.consumer = consumer;
+        return capture;
+    }
+
+    /**
+     * Create a new capture instance that keeps nothing but gives the
+     * transformation of each captured value to a consumer as soon as the call
+     * matches. The transformation can for instance be a projection, a hash or
+     * a size.
+     *
+     * @param transformation applied to each captured value
+     * @param consumer receives each transformed value
+     * @param <T> type of the class to be captured
+     * @param <R> type of the transformed value
+     * @return the new capture object
+     */
+    public static <T, R> Capture<T> newInstance(Function<? super T, ? extends R> transformation,
+            Consumer<? super R> consumer) {
+        Objects.requireNonNull(transformation, "transformation");
+        Objects.requireNonNull(consumer, "consumer");
+        return newInstance(value -> consumer.accept(transformation.apply(value)));
+    }
+
     /**
      * Will reset capture to a "nothing captured yet" state.
      */
     public void reset() {
-        values.clear();
+        lock.lock();
+        try {
+            drain();
+            clear();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * @return true if something was captured
      */
     public boolean hasCaptured() {
-        return !values.isEmpty();
+        return size() > 0;
     }
 
     /**
@@ -97,23 +223,61 @@ public class Capture<T> implements Serializable {
      * @return The last captured value
      */
     public T getValue() {
-        if (values.isEmpty()) {
-            throw new AssertionError("Nothing captured yet");
-        }
-        if (values.size() > 1) {
-            throw new AssertionError("More than one value captured: " + values);
+        lock.lock();
+        try {
+            drain();
+            if (size == 0) {
+                throw new AssertionError("Nothing captured yet");
+            }
+            if (size > 1) {
+                throw new AssertionError("More than one value captured: " + getValues());
+            }
+            return get(0);
+        } finally {
+            lock.unlock();
         }
-        return values.get(0);
     }
 
     /**
-     * Return all captured values. It returns the actual list so you can modify
-     * it's content if needed.
+     * Return all captured values. It returns a view on the values, not a copy,
+     * so you can modify its content if needed. The view follows the values
+     * captured afterwards.
      *
      * @return The currently captured values
      */
     public List<T> getValues() {
-        return values;
+        if (view == null) {
+            view = new Values();
+        }
+        return view;
+    }
+
+    /**
+     * Used internally by the EasyMock framework to store the values of a
+     * primitive capture in a primitive array. The values are still boxed when
+     * passed to the mock and when read back. It has no effect once something
+     * was captured.
+     *
+     * @param primitiveType
+     *            type of the captured values
+     */
+    public void setPrimitiveType(Class<?> primitiveType) {
+        lock.lock();
+        try {
+            drain();
+            if (size > 0) {
+                return;
+            }
+            if (primitiveType == int.class) {
+                store = new IntStore(INITIAL_CAPACITY);
+            } else if (primitiveType == long.class) {
+                store = new LongStore(INITIAL_CAPACITY);
+            } else if (primitiveType == double.class) {
+                store = new DoubleStore(INITIAL_CAPACITY);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -123,23 +287,51 @@ public class Capture<T> implements Serializable {
      *            Value captured
      */
     public void setValue(T value) {
+        if (consumer != null) {
+            consumer.accept(value);
+            return;
+        }
+        if (type == CaptureType.NONE) {
+            return;
+        }
+        pending.offer(value == null ? NullValue.INSTANCE : value);
+        // Keep the queue short when nobody reads the values, but never wait for the lock
+        pendingCount.increment();
+        if (pendingCount.sum() > DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Moves the queued values to the store, in the order they were captured. Must be called with the lock held.
+     */
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        Object value;
+        int drained = 0;
+        while ((value = pending.poll()) != null) {
+            drained++;
+            capture(value == NullValue.INSTANCE ? null : (T) value);
+        }
+        pendingCount.add(-drained);
+    }
+
+    private void capture(T value) {
         switch (type) {
-        case NONE:
-            break;
         case ALL:
-            values.add(value);
+        case LAST:
+        case LAST_N:
+            add(value);
             break;
         case FIRST:
-            if (!hasCaptured()) {
-                values.add(value);
+            if (size == 0) {
+                add(value);
             }
             break;
-        case LAST:
-            if (hasCaptured()) {
-                reset();
-            }
-            values.add(value);
-            break;
         // ///CLOVER:OFF
         default:
             throw new IllegalArgumentException("Unknown capture type: " + type);
@@ -147,14 +339,366 @@ public class Capture<T> implements Serializable {
         }
     }
 
+    private int size() {
+        lock.lock();
+        try {
+            drain();
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void clear() {
+        store = store.newStore(INITIAL_CAPACITY);
+        start = 0;
+        size = 0;
+    }
+
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        lock.lock();
+        try {
+            drain();
+            stream.defaultWriteObject();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int index) {
+        return (T) store.get(physical(index));
+    }
+
+    private T set(int index, T value) {
+        T previous = get(index);
+        put(index, value);
+        return previous;
+    }
+
+    /**
+     * Add a value at the end. When {@code maxSize} values are already kept,
+     * the oldest one is dropped.
+     */
+    private void add(T value) {
+        if (size == maxSize) {
+            // Drop the oldest value
+            store.set(start, null);
+            start = physical(1);
+            size--;
+        }
+        if (size == store.capacity()) {
+            grow(store.getClass());
+        }
+        put(size, value);
+        size++;
+    }
+
+    private void insert(int index, T value) {
+        if (size == maxSize) {
+            // Drop the oldest value to make room
+            remove(0);
+            index = Math.max(0, index - 1);
+        }
+        add(value);
+        for (int i = size - 1; i > index; i--) {
+            set(i, get(i - 1));
+        }
+        set(index, value);
+    }
+
+    private T remove(int index) {
+        T removed = get(index);
+        for (int i = index; i < size - 1; i++) {
+            set(i, get(i + 1));
+        }
+        // Don't keep a reference to the removed object
+        store.set(physical(size - 1), null);
+        size--;
+        return removed;
+    }
+
+    private void put(int index, Object value) {
+        if (!store.accepts(value)) {
+            // A value the primitive array can't hold. Go back to objects
+            grow(ObjectStore.class);
+        }
+        store.set(physical(index), value);
+    }
+
+    /**
+     * Moves the values in order at the beginning of a bigger store, or of an
+     * object store when {@code storeType} is {@code ObjectStore}.
+     */
+    private void grow(Class<?> storeType) {
+        int capacity = store.capacity();
+        if (size == capacity) {
+            capacity = (int) Math.min(maxSize, Math.max(INITIAL_CAPACITY, capacity * 2L));
+        }
+        Store grown = storeType == ObjectStore.class ? new ObjectStore(capacity) : store.newStore(capacity);
+        for (int i = 0; i < size; i++) {
+            grown.set(i, store.get(physical(i)));
+        }
+        store = grown;
+        start = 0;
+    }
+
+    private int physical(int index) {
+        int i = start + index;
+        int capacity = store.capacity();
+        return i < capacity ? i : i - capacity;
+    }
+
     @Override
     public String toString() {
-        if (values.isEmpty()) {
-            return "Nothing captured yet";
+        lock.lock();
+        try {
+            drain();
+            if (size == 0) {
+                return "Nothing captured yet";
+            }
+            if (size == 1) {
+                return String.valueOf(get(0));
+            }
+            return getValues().toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Live view on the captured values. Each operation is atomic, iterating isn't.
+     */
+    private class Values extends AbstractList<T> implements RandomAccess {
+
+        @Override
+        public T get(int index) {
+            lock.lock();
+            try {
+                drain();
+                checkIndex(index, size);
+                return Capture.this.get(index);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            return Capture.this.size();
+        }
+
+        @Override
+        public T set(int index, T element) {
+            lock.lock();
+            try {
+                drain();
+                checkIndex(index, size);
+                return Capture.this.set(index, element);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void add(int index, T element) {
+            lock.lock();
+            try {
+                drain();
+                checkIndex(index, size + 1);
+                insert(index, element);
+                modCount++;
+            } finally {
+                lock.unlock();
+            }
         }
-        if (values.size() == 1) {
-            return String.valueOf(values.get(0));
+
+        @Override
+        public T remove(int index) {
+            lock.lock();
+            try {
+                drain();
+                checkIndex(index, size);
+                modCount++;
+                return Capture.this.remove(index);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            reset();
+            modCount++;
+        }
+
+        private void checkIndex(int index, int bound) {
+            if (index < 0 || index >= bound) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+        }
+    }
+
+    /**
+     * Array keeping the captured values.
+     */
+    private abstract static class Store implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        abstract int capacity();
+
+        abstract Object get(int index);
+
+        abstract void set(int index, Object value);
+
+        abstract boolean accepts(Object value);
+
+        abstract Store newStore(int capacity);
+    }
+
+    private static final class ObjectStore extends Store {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] values;
+
+        ObjectStore(int capacity) {
+            values = new Object[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        void set(int index, Object value) {
+            values[index] = value;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        @Override
+        Store newStore(int capacity) {
+            return new ObjectStore(capacity);
+        }
+    }
+
+    private static final class IntStore extends Store {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] values;
+
+        IntStore(int capacity) {
+            values = new int[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        void set(int index, Object value) {
+            // null is only set to forget a removed value
+            values[index] = value == null ? 0 : (Integer) value;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Integer;
+        }
+
+        @Override
+        Store newStore(int capacity) {
+            return new IntStore(capacity);
+        }
+    }
+
+    private static final class LongStore extends Store {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] values;
+
+        LongStore(int capacity) {
+            values = new long[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        void set(int index, Object value) {
+            values[index] = value == null ? 0 : (Long) value;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Long;
+        }
+
+        @Override
+        Store newStore(int capacity) {
+            return new LongStore(capacity);
+        }
+    }
+
+    private static final class DoubleStore extends Store {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+
+        DoubleStore(int capacity) {
+            values = new double[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        void set(int index, Object value) {
+            values[index] = value == null ? 0 : (Double) value;
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Double;
+        }
+
+        @Override
+        Store newStore(int capacity) {
+            return new DoubleStore(capacity);
         }
-        return values.toString();
     }
 }
@@ -40,5 +40,15 @@ public enum CaptureType {
     /**
      * Will capture, in order, the arguments of each matching calls.
      */
-    ALL
+    ALL,
+
+    /**
+     * Will capture, in order, the arguments of the last matching calls. The
+     * number of arguments kept is given when creating the capture with
+     * {@link Capture#newInstance(CaptureType, int)}. The older ones are
+     * dropped.
+     *
+     * @since 4.3
+     */
+    LAST_N
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock;
+
+import javax.management.ObjectName;
+import java.util.Map;
+
+/**
+ * Metrics of the calls replayed by the mocks of a control. They are updated live, the totals being the sum of the
+ * metrics of all the mocked methods.
+ * @see IMocksControl#collectMetrics()
+ * @since 4.3
+ */
+public interface ControlMetrics extends InvocationMetrics {
+
+    /**
+     * Returns a snapshot of the metrics of each mocked method called, by mock name, method name and parameter types,
+     * e.g. {@code IMethods.oneArg(int)}. Mocks having the same name are added together.
+     *
+     * @return the metrics of each method, sorted by name
+     */
+    Map<String, InvocationMetrics> getMethods();
+
+    /**
+     * Publishes the metrics as an MXBean named {@code org.easymock:type=ControlMetrics,name=<name>} on the platform
+     * MBean server. It should be unregistered when done to allow the control to be garbage collected.
+     *
+     * @param name
+     *            name of the control in the {@code ObjectName}
+     * @return the name of the MXBean
+     * @throws IllegalStateException
+     *             if the MXBean can't be registered
+     */
+    ObjectName registerMBean(String name);
+
+    /**
+     * Removes the MXBean registered by {@link #registerMBean(String)}, if any.
+     */
+    void unregisterMBean();
+}
@@ -18,7 +18,10 @@ package org.easymock;
 import org.easymock.internal.*;
 import org.easymock.internal.matchers.*;
 
+import java.nio.ByteBuffer;
 import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Main EasyMock class. Contains methods to create, replay and verify mocks and
@@ -53,6 +56,62 @@ public class EasyMock {
      */
     public static final String DISABLE_CLASS_MOCKING = "easymock.disableClassMocking";
 
+    /**
+     * Since EasyMock 4.3, class mocks can be generated as hidden classes on Java 15
+     * and later. Unlike the default ones, these classes can be unloaded once the
+     * mocks aren't used anymore. Turn this to true to use them. The classes
+     * that can't be hidden (e.g. from the JDK) are still mocked as before.
+     */
+    public static final String ENABLE_HIDDEN_CLASS_MOCKING = "easymock.enableHiddenClassMocking";
+
+    /**
+     * Since EasyMock 4.3, class mocks can be generated at build time by
+     * {@code org.easymock.internal.MockClassGenerator}. Turn this to true to
+     * use them. Otherwise, they aren't looked up and the mock classes are
+     * generated when the tests run. Default is false.
+     */
+    public static final String ENABLE_PREGENERATED_MOCKS = "easymock.enablePregeneratedMocks";
+
+    /**
+     * Maximum number of expectations listed in the message of an unexpected
+     * call. The others are only counted. Default is 100.
+     */
+    public static final String MAX_UNEXPECTED_CALL_CANDIDATES = "easymock.maxUnexpectedCallCandidates";
+
+    /**
+     * Since EasyMock 4.3, the patterns of the {@code matches} and {@code find}
+     * matchers are compiled once and kept in a cache. This property is the
+     * maximum number of patterns kept. 0 disables the cache. Default is 256.
+     */
+    public static final String PATTERN_CACHE_SIZE = "easymock.patternCacheSize";
+
+    /**
+     * Since EasyMock 4.3, at most this number of elements of an array, or of a
+     * collection or map using the JDK {@code toString()}, is shown in a
+     * failure message. Default is 100.
+     */
+    public static final String MAX_ARGUMENT_ELEMENTS = "easymock.maxArgumentElements";
+
+    /**
+     * Since EasyMock 4.3, strings and the {@code toString()} of objects are cut
+     * after this number of characters in a failure message. Default is 10000.
+     */
+    public static final String MAX_ARGUMENT_LENGTH = "easymock.maxArgumentLength";
+
+    /**
+     * Since EasyMock 4.3, arrays, collections and maps nested deeper than this
+     * level aren't shown in a failure message. Default is 10.
+     */
+    public static final String MAX_ARGUMENT_DEPTH = "easymock.maxArgumentDepth";
+
+    /**
+     * Since EasyMock 4.3, emits Java Flight Recorder events when mocks are
+     * created, replayed and verified and when mocks are injected. Read once,
+     * when the first event is emitted. Ignored when the JVM doesn't support
+     * JFR. Default is false.
+     */
+    public static final String ENABLE_JFR_EVENTS = "easymock.enableJfrEvents";
+
     /**
      * Creates a mock object that implements the given interface, order checking
      * is disabled by default.
@@ -1607,6 +1666,22 @@ public class EasyMock {
         return null;
     }
 
+    /**
+     * Expects a {@code ByteBuffer} with the same remaining bytes as the given
+     * buffer. Heap and direct buffers can be compared. The position and limit
+     * of the buffers aren't modified and their content isn't copied. The
+     * remaining bytes of the given buffer are the ones at the time of this
+     * call.
+     *
+     * @param value
+     *            the given buffer.
+     * @return {@code null}.
+     */
+    public static ByteBuffer bufferEq(ByteBuffer value) {
+        reportMatcher(new ByteBufferEquals(value));
+        return null;
+    }
+
     /**
      * Expects null. To work well with generics, this matcher (and
      * {@link #isNull(Class)}) can be used in these three ways:
@@ -1841,6 +1916,46 @@ public class EasyMock {
         return Capture.newInstance(type);
     }
 
+    /**
+     * Create a new capture instance keeping the last {@code size} captured values.
+     *
+     * @param type capture type wanted, only {@link CaptureType#LAST_N} is supported
+     * @param size maximum number of values kept
+     * @param <T> type of the class to be captured
+     * @return the new capture object
+     */
+    public static <T> Capture<T> newCapture(CaptureType type, int size) {
+        return Capture.newInstance(type, size);
+    }
+
+    /**
+     * Create a new capture instance that keeps nothing but gives each captured
+     * value to a consumer as soon as the call matches.
+     *
+     * @param consumer receives each captured value
+     * @param <T> type of the class to be captured
+     * @return the new capture object
+     */
+    public static <T> Capture<T> newCapture(Consumer<? super T> consumer) {
+        return Capture.newInstance(consumer);
+    }
+
+    /**
+     * Create a new capture instance that keeps nothing but gives the
+     * transformation of each captured value to a consumer as soon as the call
+     * matches.
+     *
+     * @param transformation applied to each captured value
+     * @param consumer receives each transformed value
+     * @param <T> type of the class to be captured
+     * @param <R> type of the transformed value
+     * @return the new capture object
+     */
+    public static <T, R> Capture<T> newCapture(Function<? super T, ? extends R> transformation,
+            Consumer<? super R> consumer) {
+        return Capture.newInstance(transformation, consumer);
+    }
+
     /**
      * Expect any object but captures it for later use.
      *
@@ -1875,6 +1990,7 @@ public class EasyMock {
      * @return {@code 0}
      */
     public static int captureInt(Capture<Integer> captured) {
+        captured.setPrimitiveType(int.class);
         reportMatcher(new Captures<>(captured));
         return 0;
     }
@@ -1887,6 +2003,7 @@ public class EasyMock {
      * @return {@code 0}
      */
     public static long captureLong(Capture<Long> captured) {
+        captured.setPrimitiveType(long.class);
         reportMatcher(new Captures<>(captured));
         return 0;
     }
@@ -1911,6 +2028,7 @@ public class EasyMock {
      * @return {@code 0}
      */
     public static double captureDouble(Capture<Double> captured) {
+        captured.setPrimitiveType(double.class);
         reportMatcher(new Captures<>(captured));
         return 0;
     }
@@ -2165,6 +2283,21 @@ public class EasyMock {
         getControl(mock).makeThreadSafe(threadSafe);
     }
 
+    /**
+     * By default, a thread safe mock uses a single lock for all the mocks of
+     * its control. This method makes it use a lock per mocked method instead
+     * so calls to independent methods aren't serialized. It only applies to
+     * unordered expectations. See {@link IMocksControl#lockPerMethod(boolean)}.
+     *
+     * @param mock
+     *            the mock
+     * @param lockPerMethod
+     *            If each method should have its own lock
+     */
+    public static void lockPerMethod(Object mock, boolean lockPerMethod) {
+        getControl(mock).lockPerMethod(lockPerMethod);
+    }
+
     /**
      * Tell that the mock should be used in only one thread. An exception will
      * be thrown if that's not the case. This can be useful when mocking an
@@ -18,6 +18,7 @@ package org.easymock;
 import net.sf.cglib.proxy.Enhancer;
 import net.sf.cglib.proxy.Factory;
 import org.easymock.internal.ClassProxyFactory;
+import org.easymock.internal.HiddenClassProxyFactory;
 import org.easymock.internal.Injector;
 import org.easymock.internal.MockBuilder;
 import org.easymock.internal.MocksControl;
@@ -627,6 +628,9 @@ public class EasyMockSupport {
                 return null;
             }
         }
+        else if(HiddenClassProxyFactory.isHiddenMock(possibleMock)) {
+            return MocksControl.getMockedClass(possibleMock);
+        }
         else if(ReflectionUtils.isClassAvailable("net.sf.cglib.proxy.Enhancer")) {
             if(!ObjectMockingHelper.isAClassMock(possibleMock)) {
                 return null;
@@ -48,4 +48,23 @@ public interface IArgumentMatcher {
      *            the buffer to which the string representation is appended.
      */
     void appendTo(StringBuffer buffer);
+
+    /**
+     * Appends a string representation of this matcher to the given builder.
+     * By default, it calls {@link #appendTo(StringBuffer)} so existing
+     * matchers keep working. A matcher can implement it to skip the
+     * synchronized {@code StringBuffer}. EasyMock only calls it when it isn't
+     * declared by a superclass of the class declaring
+     * {@link #appendTo(StringBuffer)}, so a subclass overriding only
+     * {@link #appendTo(StringBuffer)} keeps its description.
+     *
+     * @param builder
+     *            the builder to which the string representation is appended.
+     * @since 4.3
+     */
+    default void appendTo(StringBuilder builder) {
+        StringBuffer buffer = new StringBuffer();
+        appendTo(buffer);
+        builder.append(buffer);
+    }
 }
@@ -16,6 +16,7 @@
 package org.easymock;
 
 import java.lang.reflect.Method;
+import java.nio.file.Path;
 
 /**
  * Controls all the mock objects created by it. For details, see the EasyMock
@@ -216,6 +217,46 @@ public interface IMocksControl {
      */
     void makeThreadSafe(boolean threadSafe);
 
+    /**
+     * Makes a thread safe mock lock each mocked method separately instead of all the mocks of the control together.
+     * Calls to different methods can then be replayed in parallel. It only applies to unordered expectations. As soon
+     * as the order is checked, a single lock is used to keep a global sequence of calls. The message of an unexpected
+     * call then only lists the expectations on the same method.
+     *
+     * @param lockPerMethod
+     *            If each method should have its own lock
+     */
+    void lockPerMethod(boolean lockPerMethod);
+
+    /**
+     * Journals all the calls replayed by the mocks of this control in a memory-mapped file used as a ring buffer. The
+     * oldest calls are overwritten once the file is full. The journal can be read while replaying, or afterwards with
+     * {@link InvocationJournal#open(Path)}. It should be closed when done. Closing it stops the journaling.
+     * <p>
+     * The journal is kept when the control is reset. Calling this method again closes the previous journal.
+     *
+     * @param file
+     *            the journal file, created or replaced
+     * @param size
+     *            size of the file in bytes, at least 4096
+     * @return the journal
+     * @throws java.io.UncheckedIOException
+     *             if the file can't be created
+     * @since 4.3
+     */
+    InvocationJournal journal(Path file, int size);
+
+    /**
+     * Collects metrics on the calls replayed by the mocks of this control: number of calls, stub hits, unexpected
+     * calls, expectations matched and time spent matching and answering. It tells if a slow test spends its time in
+     * the tested code or in the mocks. Calling it again returns the same metrics. They are kept, and keep counting,
+     * when the control is reset.
+     *
+     * @return the metrics, updated while replaying
+     * @since 4.3
+     */
+    ControlMetrics collectMetrics();
+
     /**
      * Check that the mock is called from only one thread
      *
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock;
+
+import org.easymock.internal.MappedInvocationJournal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Journal of the calls replayed by the mocks of a control. Each call is appended to a memory-mapped file used as a
+ * ring buffer, so the oldest calls are overwritten once the file is full. Nothing is kept on the heap and the file can
+ * be read with {@link #open(Path)} after the JVM is gone.
+ * <p>
+ * The arguments are encoded compactly: {@code null}, primitive wrappers and strings (cut after 256 characters) are
+ * kept as is. Other objects are only described by their class and identity hash code, e.g.
+ * {@code java.util.ArrayList@1b6d3586}.
+ * @see IMocksControl#journal(Path, int)
+ * @since 4.3
+ */
+public interface InvocationJournal extends Iterable<InvocationJournal.Entry>, Closeable {
+
+    /**
+     * A journaled call.
+     */
+    interface Entry {
+
+        /**
+         * @return number of the call in the journal, starting at 0
+         */
+        long getSequence();
+
+        /**
+         * @return time of the call in milliseconds since the epoch
+         */
+        long getTimestamp();
+
+        /**
+         * @return id of the calling thread
+         */
+        long getThreadId();
+
+        /**
+         * @return identity hash code of the called mock
+         */
+        int getMockIdentity();
+
+        /**
+         * @return id of the called method, the same for all the calls to a given method in a JVM
+         */
+        int getMethodId();
+
+        /**
+         * @return mock and method names, e.g. {@code IMethods.oneArg}
+         */
+        String getMockAndMethodName();
+
+        /**
+         * @return the decoded arguments. Objects that aren't primitive wrappers or strings are replaced by their
+         *         description
+         */
+        Object[] getArguments();
+
+        /**
+         * @return if some arguments were dropped because the call was too big to be journaled
+         */
+        boolean isTruncated();
+    }
+
+    /**
+     * Opens, read-only, a journal written by a previous run.
+     *
+     * @param file
+     *            the journal file
+     * @return the journal
+     * @throws IOException
+     *             if the file can't be read or isn't a journal
+     */
+    static InvocationJournal open(Path file) throws IOException {
+        return MappedInvocationJournal.open(file);
+    }
+
+    /**
+     * @return the file of the journal
+     */
+    Path getFile();
+
+    /**
+     * @return number of calls currently kept in the journal
+     */
+    long size();
+
+    /**
+     * @return number of calls journaled since the creation, including the ones overwritten
+     */
+    long getTotalCount();
+}
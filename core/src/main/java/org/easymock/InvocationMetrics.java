@@ -0,0 +1,56 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock;
+
+/**
+ * Counters of the calls replayed by mocks. The times are in nanoseconds and only include the work done by EasyMock
+ * (finding the expectation or stub matching the call) and by the answer (return value, exception, {@link IAnswer} or
+ * delegate).
+ * @see IMocksControl#collectMetrics()
+ * @since 4.3
+ */
+public interface InvocationMetrics {
+
+    /**
+     * @return number of calls replayed
+     */
+    long getCallCount();
+
+    /**
+     * @return number of calls answered by a stub
+     */
+    long getStubHitCount();
+
+    /**
+     * @return number of calls that were not expected
+     */
+    long getUnexpectedCallCount();
+
+    /**
+     * @return number of expectations and stubs whose arguments were matched against the calls
+     */
+    long getMatchCount();
+
+    /**
+     * @return time spent finding the expectation or stub of the calls
+     */
+    long getMatchingNanos();
+
+    /**
+     * @return time spent answering the calls
+     */
+    long getAnswerNanos();
+}
@@ -15,66 +15,287 @@
  */
 package org.easymock.internal;
 
+import org.easymock.EasyMock;
+
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
 
 /**
- * Utility class to convert method arguments to Strings
+ * Utility class to convert method arguments to Strings.
+ * <p>
+ * The rendering is bounded so a huge argument can't produce a huge failure message. Arrays, and the collections and
+ * maps using the {@code toString()} of the JDK, list at most {@link EasyMock#MAX_ARGUMENT_ELEMENTS} elements, nested
+ * down to {@link EasyMock#MAX_ARGUMENT_DEPTH} levels. Strings, and the {@code toString()} of other objects, are cut
+ * after {@link EasyMock#MAX_ARGUMENT_LENGTH} characters. That {@code toString()} is still fully computed before being
+ * cut.
  *
  * @author Henri Tremblay
  */
 public final class ArgumentToString {
 
+    private static final int DEFAULT_MAX_ELEMENTS = 100;
+
+    private static final int DEFAULT_MAX_LENGTH = 10_000;
+
+    private static final int DEFAULT_MAX_DEPTH = 10;
+
+    /**
+     * Limits read from the EasyMock properties when a rendering starts.
+     */
+    private static final class Limits {
+
+        private final int maxElements = getLimit(EasyMock.MAX_ARGUMENT_ELEMENTS, DEFAULT_MAX_ELEMENTS);
+
+        private final int maxLength = getLimit(EasyMock.MAX_ARGUMENT_LENGTH, DEFAULT_MAX_LENGTH);
+
+        private final int maxDepth = getLimit(EasyMock.MAX_ARGUMENT_DEPTH, DEFAULT_MAX_DEPTH);
+
+        private static int getLimit(String key, int defaultValue) {
+            String value = EasyMockProperties.getInstance().getProperty(key);
+            if (value == null) {
+                return defaultValue;
+            }
+            // Failing here would hide the assertion error being rendered. So a wrong value is ignored
+            try {
+                return Math.max(0, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /** The collections and maps that can be walked instead of calling their {@code toString()} */
+    private static final ClassValue<Boolean> USES_JDK_TO_STRING = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return usesJdkToString(type);
+        }
+    };
+
     // ///CLOVER:OFF
     private ArgumentToString() {
     }
 
     // ///CLOVER:ON
 
+    /**
+     * Appends the string representation of an argument. Kept for backward compatibility,
+     * {@link #appendArgument(Object, StringBuilder)} should be preferred.
+     *
+     * @param value
+     *            the argument
+     * @param buffer
+     *            where to append
+     */
     public static void appendArgument(Object value, StringBuffer buffer) {
+        StringBuilder builder = new StringBuilder();
+        appendArgument(value, builder);
+        buffer.append(builder);
+    }
+
+    /**
+     * Appends the string representation of an argument to any {@code Appendable}, e.g. a {@code Writer}.
+     *
+     * @param value
+     *            the argument
+     * @param appendable
+     *            where to append
+     * @throws IOException
+     *             if the {@code Appendable} fails
+     */
+    public static void appendArgument(Object value, Appendable appendable) throws IOException {
+        if (appendable instanceof StringBuilder) {
+            appendArgument(value, (StringBuilder) appendable);
+            return;
+        }
+        StringBuilder builder = new StringBuilder();
+        appendArgument(value, builder);
+        appendable.append(builder);
+    }
+
+    /**
+     * Appends the string representation of an argument.
+     *
+     * @param value
+     *            the argument
+     * @param builder
+     *            where to append
+     */
+    public static void appendArgument(Object value, StringBuilder builder) {
+        appendArgument(value, builder, new Limits(), 0);
+    }
+
+    private static void appendArgument(Object value, StringBuilder builder, Limits limits, int depth) {
         if (value == null) {
-            buffer.append("null");
+            builder.append("null");
         } else if (value instanceof String) {
-            buffer.append("\"");
-            buffer.append(value);
-            buffer.append("\"");
+            appendString((String) value, builder, limits, '"');
         } else if (value instanceof Character) {
-            buffer.append("'");
-            buffer.append(value);
-            buffer.append("'");
+            builder.append("'");
+            builder.append(value);
+            builder.append("'");
         } else if (value.getClass().isArray()) {
-            buffer.append("[");
-            int length = Array.getLength(value);
-            int printedLength = Math.min(100, length);
-            for (int i = 0; i < printedLength; i++) {
-                if (i > 0) {
-                    buffer.append(", ");
-                }
-                appendArgument(Array.get(value, i), buffer);
-            }
-            if(length > printedLength) {
-                buffer.append("... (length=").append(length).append(")");
-            }
-            buffer.append("]");
+            appendArray(value, builder, limits, depth);
         } else if (PrimitiveUtils.isPrimitiveWrapper(value.getClass())) {
-            buffer.append(value)
+            builder.append(value)
                 .append(" (")
                 .append(PrimitiveUtils.getPrimitiveTypeNameFromWrapper(value.getClass()))
                 .append(")");
         } else {
-            buffer.append(value);
+            appendObject(value, builder, limits, depth);
+        }
+    }
+
+    private static void appendArray(Object value, StringBuilder builder, Limits limits, int depth) {
+        if (depth >= limits.maxDepth) {
+            builder.append("[...]");
+            return;
+        }
+        builder.append("[");
+        int length = Array.getLength(value);
+        int printedLength = Math.min(limits.maxElements, length);
+        for (int i = 0; i < printedLength; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            appendArgument(Array.get(value, i), builder, limits, depth + 1);
+        }
+        if (length > printedLength) {
+            builder.append("... (length=").append(length).append(")");
+        }
+        builder.append("]");
+    }
+
+    /**
+     * Appends an object that isn't an array or a primitive. Collections and maps using the JDK {@code toString()}, e.g.
+     * inherited from {@code AbstractCollection}, are walked to be able to stop early. They are rendered like their
+     * {@code toString()}. Everything else is rendered with its {@code toString()}.
+     */
+    private static void appendObject(Object value, StringBuilder builder, Limits limits, int depth) {
+        if (USES_JDK_TO_STRING.get(value.getClass())) {
+            if (value instanceof Collection) {
+                appendCollection((Collection<?>) value, builder, limits, depth);
+                return;
+            }
+            if (value instanceof Map) {
+                appendMap((Map<?, ?>) value, builder, limits, depth);
+                return;
+            }
+        }
+        appendString(String.valueOf(value), builder, limits, (char) 0);
+    }
+
+    private static void appendCollection(Collection<?> collection, StringBuilder builder, Limits limits, int depth) {
+        if (depth >= limits.maxDepth) {
+            builder.append("[...]");
+            return;
+        }
+        builder.append('[');
+        int printed = 0;
+        for (Iterator<?> it = collection.iterator(); it.hasNext();) {
+            if (printed == limits.maxElements) {
+                builder.append("... (size=").append(collection.size()).append(")");
+                break;
+            }
+            if (printed > 0) {
+                builder.append(", ");
+            }
+            Object element = it.next();
+            appendElement(element == collection ? "(this Collection)" : element, builder, limits, depth + 1);
+            printed++;
+        }
+        builder.append(']');
+    }
+
+    private static void appendMap(Map<?, ?> map, StringBuilder builder, Limits limits, int depth) {
+        if (depth >= limits.maxDepth) {
+            builder.append("{...}");
+            return;
+        }
+        builder.append('{');
+        int printed = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (printed == limits.maxElements) {
+                builder.append("... (size=").append(map.size()).append(")");
+                break;
+            }
+            if (printed > 0) {
+                builder.append(", ");
+            }
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+            appendElement(key == map ? "(this Map)" : key, builder, limits, depth + 1);
+            builder.append('=');
+            appendElement(value == map ? "(this Map)" : value, builder, limits, depth + 1);
+            printed++;
+        }
+        builder.append('}');
+    }
+
+    /**
+     * Elements of a collection or map are rendered like the collection {@code toString()} would, so without the
+     * quotes and primitive types added to the arguments. Nested collections and arrays are still bounded.
+     */
+    private static void appendElement(Object element, StringBuilder builder, Limits limits, int depth) {
+        if (element == null) {
+            builder.append("null");
+        } else if (element.getClass().isArray()) {
+            // Like toString(), an array in a collection is shown as an array and not as its content
+            appendString(element.toString(), builder, limits, (char) 0);
+        } else {
+            appendObject(element, builder, limits, depth);
+        }
+    }
+
+    private static void appendString(String value, StringBuilder builder, Limits limits, char quote) {
+        if (quote != 0) {
+            builder.append(quote);
+        }
+        if (value.length() > limits.maxLength) {
+            builder.append(value, 0, limits.maxLength);
+            if (quote != 0) {
+                builder.append(quote);
+            }
+            builder.append("... (length=").append(value.length()).append(")");
+            return;
+        }
+        builder.append(value);
+        if (quote != 0) {
+            builder.append(quote);
+        }
+    }
+
+    private static boolean isJdkClass(Class<?> c) {
+        return c.getName().startsWith("java.");
+    }
+
+    private static boolean usesJdkToString(Class<?> c) {
+        if (isJdkClass(c)) {
+            return true;
+        }
+        try {
+            Class<?> declaringClass = c.getMethod("toString").getDeclaringClass();
+            return declaringClass != Object.class && isJdkClass(declaringClass);
+        } catch (NoSuchMethodException e) {
+            // ///CLOVER:OFF (every class has a toString)
+            return false;
+            // ///CLOVER:ON
         }
     }
 
     /**
      * Converts an argument to a String using
-     * {@link #appendArgument(Object, StringBuffer)}
+     * {@link #appendArgument(Object, StringBuilder)}
      *
      * @param argument
      *            the argument to convert to a String.
      * @return a {@code String} representation of the argument.
      */
     public static String argumentToString(Object argument) {
-        StringBuffer result = new StringBuffer();
+        StringBuilder result = new StringBuilder();
         ArgumentToString.appendArgument(argument, result);
         return result.toString();
     }
@@ -95,12 +316,13 @@ public final class ArgumentToString {
         }
 
         StringBuilder result = new StringBuilder();
+        Limits limits = new Limits();
 
         for (int i = 0; i < arguments.length; i++) {
             if (i > 0) {
                 result.append(", ");
             }
-            result.append(argumentToString(arguments[i]));
+            appendArgument(arguments[i], result, limits, 0);
         }
         return result.toString();
     }
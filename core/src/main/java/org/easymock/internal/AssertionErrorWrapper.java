@@ -25,6 +25,8 @@ public class AssertionErrorWrapper extends RuntimeException {
     private final AssertionError error;
 
     public AssertionErrorWrapper(AssertionError error) {
+        // Only a carrier, the stack trace is filled in on the wrapped one when it's rethrown
+        super(null, null, false, false);
         this.error = error;
     }
 
@@ -17,6 +17,7 @@ package org.easymock.internal;
 
 import net.sf.cglib.core.CodeGenerationException;
 import net.sf.cglib.core.CollectionUtils;
+import net.sf.cglib.core.DefaultGeneratorStrategy;
 import net.sf.cglib.core.DefaultNamingPolicy;
 import net.sf.cglib.core.NamingPolicy;
 import net.sf.cglib.core.Predicate;
@@ -26,17 +27,26 @@ import net.sf.cglib.proxy.Factory;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 import org.easymock.ConstructorArgs;
+import org.easymock.EasyMock;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -152,6 +162,33 @@ public class ClassProxyFactory implements IProxyFactory {
 
     // ///CLOVER:ON
 
+    /**
+     * Suffix added to the mocked class name to name the mock class generated at build time by
+     * {@link MockClassGenerator}.
+     */
+    public static final String PREGENERATED_SUFFIX = "$$EasyMockPregenerated";
+
+    /**
+     * Prefix of the field added to a mock class generated at build time. The rest of its name is the
+     * {@link #fingerprint(Class) fingerprint} of the mocked class at that time.
+     */
+    private static final String FINGERPRINT_PREFIX = "EASYMOCK$FINGERPRINT$";
+
+    private static final MockClassCache MOCK_CLASS_CACHE = new MockClassCache();
+
+    /**
+     * Returns the cache of the generated mock classes shared by all class mocks.
+     *
+     * @return the mock class cache
+     */
+    public static MockClassCache getMockClassCache() {
+        return MOCK_CLASS_CACHE;
+    }
+
+    public boolean isProxyClassCached(Class<?> toMock) {
+        return MOCK_CLASS_CACHE.contains(toMock);
+    }
+
     public static boolean isCallerMockInvocationHandlerInvoke(Throwable e) {
         StackTraceElement[] elements = e.getStackTrace();
         return elements.length > 2
@@ -162,56 +199,18 @@ public class ClassProxyFactory implements IProxyFactory {
     @SuppressWarnings("unchecked")
     public <T> T createProxy(final Class<T> toMock, InvocationHandler handler,
             Method[] mockedMethods, ConstructorArgs args) {
-        Enhancer enhancer = createEnhancer(toMock);
-
         MockMethodInterceptor interceptor = new MockMethodInterceptor(handler);
         if (mockedMethods != null) {
             interceptor.setMockedMethods(mockedMethods);
         }
-        enhancer.setCallbackType(interceptor.getClass());
 
-        Class<?> mockClass;
-        try {
-            mockClass = enhancer.createClass();
-        } catch (CodeGenerationException e) {
-            // ///CLOVER:OFF (don't know how to test it automatically)
-            // Probably caused by a NoClassDefFoundError, to use two class loaders at the same time
-            // instead of the default one (which is the class to mock one)
-            // This is required by Eclipse Plug-ins, the mock class loader doesn't see
-            // cglib most of the time. Using EasyMock and the mock class loader at the same time solves this
-            LinkedClassLoader linkedClassLoader = AccessController.doPrivileged((PrivilegedAction<LinkedClassLoader>) () -> new LinkedClassLoader(toMock.getClassLoader(), ClassProxyFactory.class.getClassLoader()));
-            enhancer.setClassLoader(linkedClassLoader);
-            mockClass = enhancer.createClass();
-            // ///CLOVER:ON
-        }
+        Class<?> mockClass = MOCK_CLASS_CACHE.get(toMock, ClassProxyFactory::createMockClass);
 
         Factory mock;
 
         if (args != null) {
             // Really instantiate the class
-            Constructor<?> cstr;
-            try {
-                // Get the constructor with the same params
-                cstr = mockClass.getDeclaredConstructor(args.getConstructor().getParameterTypes());
-            } catch (NoSuchMethodException e) {
-                // Shouldn't happen, constructor is checked when ConstructorArgs is instantiated
-                // ///CLOVER:OFF
-                throw new RuntimeException("Fail to find constructor for param types", e);
-                // ///CLOVER:ON
-            }
-            try {
-                cstr.setAccessible(true); // So we can call a protected
-                // constructor
-                mock = (Factory) cstr.newInstance(args.getInitArgs());
-            } catch (InstantiationException | IllegalAccessException e) {
-                // ///CLOVER:OFF
-                throw new RuntimeException("Failed to instantiate mock calling constructor", e);
-                // ///CLOVER:ON
-            } catch (InvocationTargetException e) {
-                throw new RuntimeException(
-                        "Failed to instantiate mock calling constructor: Exception in constructor",
-                        e.getTargetException());
-            }
+            mock = (Factory) MockConstructors.newInstance(mockClass, args.getConstructor(), args.getInitArgs());
         } else {
             // Do not call any constructor
             try {
@@ -228,7 +227,165 @@ public class ClassProxyFactory implements IProxyFactory {
         return (T) mock;
     }
 
-    private Enhancer createEnhancer(Class<?> toMock) {
+    private static Class<?> createMockClass(Class<?> toMock) {
+        // Looking for a class that usually doesn't exist has a cost, so only do it when asked
+        if (isPregeneratedMocksEnabled()) {
+            Class<?> pregenerated = loadPregeneratedMockClass(toMock);
+            if (pregenerated != null) {
+                return pregenerated;
+            }
+        }
+
+        Enhancer enhancer = createEnhancer(toMock);
+        enhancer.setCallbackType(MockMethodInterceptor.class);
+
+        try {
+            return enhancer.createClass();
+        } catch (CodeGenerationException e) {
+            // ///CLOVER:OFF (don't know how to test it automatically)
+            // Probably caused by a NoClassDefFoundError, to use two class loaders at the same time
+            // instead of the default one (which is the class to mock one)
+            // This is required by Eclipse Plug-ins, the mock class loader doesn't see
+            // cglib most of the time. Using EasyMock and the mock class loader at the same time solves this
+            LinkedClassLoader linkedClassLoader = AccessController.doPrivileged((PrivilegedAction<LinkedClassLoader>) () -> new LinkedClassLoader(toMock.getClassLoader(), ClassProxyFactory.class.getClassLoader()));
+            enhancer.setClassLoader(linkedClassLoader);
+            return enhancer.createClass();
+            // ///CLOVER:ON
+        }
+    }
+
+    private static boolean isPregeneratedMocksEnabled() {
+        return Boolean.parseBoolean(EasyMockProperties.getInstance().getProperty(EasyMock.ENABLE_PREGENERATED_MOCKS));
+    }
+
+    /**
+     * A mock class can be generated at build time only if it can be placed next to the mocked class.
+     * So not for a class loaded by the bootstrap class loader or a class in a signed package.
+     *
+     * @param toMock the mocked class
+     * @return if the mock class can be generated at build time
+     */
+    static boolean canBePregenerated(Class<?> toMock) {
+        return toMock.getClassLoader() != null && toMock.getSigners() == null;
+    }
+
+    static Class<?> loadPregeneratedMockClass(Class<?> toMock) {
+        if (!canBePregenerated(toMock)) {
+            return null;
+        }
+        Class<?> mockClass;
+        try {
+            mockClass = Class.forName(toMock.getName() + PREGENERATED_SUFFIX, false, toMock.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        // Make sure it's not a stale class generated from an older version of the mocked class. Only the
+        // declared fields are looked at, the class isn't initialized
+        try {
+            mockClass.getDeclaredField(FINGERPRINT_PREFIX + fingerprint(toMock));
+        } catch (NoSuchFieldException | LinkageError e) {
+            return null;
+        }
+        return mockClass;
+    }
+
+    /**
+     * Computes a fingerprint of the methods of {@code toMock} intercepted by its mock class. It changes as soon as
+     * a method is added, removed, made final or has its signature changed.
+     *
+     * @param toMock the mocked class
+     * @return the fingerprint, in hexadecimal
+     */
+    static String fingerprint(Class<?> toMock) {
+        List<Method> methods = new ArrayList<>();
+        Enhancer.getMethods(toMock, null, methods);
+        List<String> signatures = new ArrayList<>(methods.size());
+        for (Method m : methods) {
+            signatures.add(m.getName() + Type.getMethodDescriptor(m));
+        }
+        Collections.sort(signatures);
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // ///CLOVER:OFF
+            throw new IllegalStateException("SHA-256 is always available", e);
+            // ///CLOVER:ON
+        }
+        for (String signature : signatures) {
+            digest.update(signature.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        byte[] hash = digest.digest();
+        StringBuilder hex = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) {
+            hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Generates the bytecode of the mock class for {@code toMock}. It is the same class as the one generated
+     * at runtime but with a predictable name so it can be found by {@link #createProxy} later on.
+     *
+     * @param toMock the mocked class
+     * @return the bytecode of the mock class
+     */
+    static byte[] generateMockClassBytecode(Class<?> toMock) {
+        return generateMockClassBytecode(toMock, fingerprint(toMock));
+    }
+
+    /**
+     * Generates the bytecode of the mock class for {@code toMock} marked with the given fingerprint.
+     *
+     * @param toMock the mocked class
+     * @param fingerprint fingerprint of the mocked class
+     * @return the bytecode of the mock class
+     */
+    static byte[] generateMockClassBytecode(Class<?> toMock, String fingerprint) {
+        String className = toMock.getName() + PREGENERATED_SUFFIX;
+
+        Enhancer enhancer = createEnhancer(toMock);
+        enhancer.setCallbackType(MockMethodInterceptor.class);
+        enhancer.setUseCache(false);
+        enhancer.setNamingPolicy((prefix, source, key, names) -> className);
+
+        BytecodeCapturingStrategy strategy = new BytecodeCapturingStrategy(FINGERPRINT_PREFIX + fingerprint);
+        enhancer.setStrategy(strategy);
+        enhancer.createClass();
+        return strategy.bytecode;
+    }
+
+    private static class BytecodeCapturingStrategy extends DefaultGeneratorStrategy {
+
+        private final String fingerprintField;
+
+        private byte[] bytecode;
+
+        BytecodeCapturingStrategy(String fingerprintField) {
+            this.fingerprintField = fingerprintField;
+        }
+
+        @Override
+        protected byte[] transform(byte[] b) {
+            // Add the fingerprint field. It is never assigned nor read, only its name matters
+            ClassReader reader = new ClassReader(b);
+            ClassWriter writer = new ClassWriter(reader, 0);
+            reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+                @Override
+                public void visitEnd() {
+                    super.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL
+                        | Opcodes.ACC_SYNTHETIC, fingerprintField, "Z", null, null).visitEnd();
+                    super.visitEnd();
+                }
+            }, 0);
+            bytecode = writer.toByteArray();
+            return bytecode;
+        }
+    }
+
+    private static Enhancer createEnhancer(Class<?> toMock) {
         // Create the mock
         Enhancer enhancer = new Enhancer() {
 
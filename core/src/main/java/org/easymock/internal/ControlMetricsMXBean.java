@@ -0,0 +1,40 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.InvocationMetrics;
+
+import java.util.Map;
+
+/**
+ * Attributes of the {@link org.easymock.ControlMetrics} published through JMX.
+ */
+public interface ControlMetricsMXBean {
+
+    long getCallCount();
+
+    long getStubHitCount();
+
+    long getUnexpectedCallCount();
+
+    long getMatchCount();
+
+    long getMatchingNanos();
+
+    long getAnswerNanos();
+
+    Map<String, InvocationMetrics> getMethods();
+}
@@ -22,11 +22,21 @@ public class ErrorMessage {
 
     private final boolean matching;
 
-    private final String message;
+    /** Turned into a string only when the message is rendered */
+    private final Object message;
 
     private final int actualCount;
 
     public ErrorMessage(boolean matching, String message, int actualCount) {
+        this(matching, (Object) message, actualCount);
+    }
+
+    /**
+     * @param matching if the expectation matches the invocation
+     * @param message whatever gives the message with its {@code toString}
+     * @param actualCount the call count of the expectation
+     */
+    public ErrorMessage(boolean matching, Object message, int actualCount) {
         this.matching = matching;
         this.message = message;
         this.actualCount = actualCount;
@@ -37,7 +47,7 @@ public class ErrorMessage {
     }
 
     public String getMessage() {
-        return message;
+        return message.toString();
     }
 
     public int getActualCount() {
@@ -16,8 +16,12 @@
 package org.easymock.internal;
 
 import org.easymock.IArgumentMatcher;
+import org.easymock.internal.matchers.And;
 import org.easymock.internal.matchers.ArrayEquals;
+import org.easymock.internal.matchers.Captures;
 import org.easymock.internal.matchers.Equals;
+import org.easymock.internal.matchers.Not;
+import org.easymock.internal.matchers.Or;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
@@ -32,13 +36,40 @@ public class ExpectedInvocation implements Serializable {
 
     private static final long serialVersionUID = -5554816464613350531L;
 
+    private static final String EASYMOCK_MATCHERS_PACKAGE = Equals.class.getName().substring(0,
+        Equals.class.getName().lastIndexOf('.') + 1);
+
+    /**
+     * If a matcher class can be described with {@code appendTo(StringBuilder)}. Not the case when
+     * {@code appendTo(StringBuffer)} is overridden in a subclass of the one implementing the {@code StringBuilder}
+     * overload, e.g. a subclass of {@link Equals}.
+     */
+    private static final ClassValue<Boolean> APPENDS_TO_BUILDER = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                Class<?> bufferClass = type.getMethod("appendTo", StringBuffer.class).getDeclaringClass();
+                Class<?> builderClass = type.getMethod("appendTo", StringBuilder.class).getDeclaringClass();
+                return bufferClass.isAssignableFrom(builderClass);
+            } catch (NoSuchMethodException e) {
+                // ///CLOVER:OFF (both are declared by IArgumentMatcher)
+                return false;
+                // ///CLOVER:ON
+            }
+        }
+    };
+
     private final Invocation invocation;
 
     private final List<IArgumentMatcher> matchers;
 
+    /** The invocation was recorded with raw values, so each argument is matched with {@code equals} */
+    private final boolean rawArguments;
+
     public ExpectedInvocation(Invocation invocation, List<IArgumentMatcher> matchers) {
         this.invocation = invocation;
         this.matchers = createMissingMatchers(invocation, matchers);
+        this.rawArguments = matchers == null;
     }
 
     private List<IArgumentMatcher> createMissingMatchers(Invocation invocation,
@@ -87,9 +118,21 @@ public class ExpectedInvocation implements Serializable {
         throw new UnsupportedOperationException("hashCode() is not implemented");
     }
 
-    public boolean matches(Invocation actual) {
+    /**
+     * @param actual the invocation
+     * @return if the invocation is on the same mock and method, whatever the arguments
+     */
+    public boolean isSameMethod(Invocation actual) {
         return this.invocation.getMock() == actual.getMock()
-                && this.invocation.getMethod().equals(actual.getMethod()) && matches(actual.getArguments());
+                && this.invocation.getMethodId() == actual.getMethodId();
+    }
+
+    public boolean matches(Invocation actual) {
+        if (this.invocation.getMock() != actual.getMock() || this.invocation.getMethodId() != actual.getMethodId()) {
+            return false;
+        }
+        actual.countMatch();
+        return matches(actual.getArguments());
     }
 
     private boolean matches(Object[] arguments) {
@@ -106,11 +149,11 @@ public class ExpectedInvocation implements Serializable {
 
     @Override
     public String toString() {
-        StringBuffer result = new StringBuffer();
+        StringBuilder result = new StringBuilder();
         result.append(invocation.getMockAndMethodName());
         result.append("(");
         for (Iterator<IArgumentMatcher> it = matchers.iterator(); it.hasNext();) {
-            it.next().appendTo(result);
+            appendTo(it.next(), result);
             if (it.hasNext()) {
                 result.append(", ");
             }
@@ -119,7 +162,72 @@ public class ExpectedInvocation implements Serializable {
         return result.toString();
     }
 
+    private static void appendTo(IArgumentMatcher matcher, StringBuilder builder) {
+        if (APPENDS_TO_BUILDER.get(matcher.getClass())) {
+            matcher.appendTo(builder);
+            return;
+        }
+        StringBuffer buffer = new StringBuffer();
+        matcher.appendTo(buffer);
+        builder.append(buffer);
+    }
+
+    /**
+     * @return if the invocation was recorded without matchers
+     */
+    public boolean hasRawArguments() {
+        return rawArguments;
+    }
+
+    /**
+     * Tells if matching an invocation only uses EasyMock matchers that don't capture. Such matching has no side
+     * effect and doesn't need {@link LastControl#getCurrentInvocation()}.
+     *
+     * @return if matching is side effect free
+     */
+    public boolean isSideEffectFree() {
+        return isSideEffectFree(matchers);
+    }
+
+    private static boolean isSideEffectFree(List<IArgumentMatcher> matchers) {
+        for (IArgumentMatcher matcher : matchers) {
+            if (!isSideEffectFree(matcher)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSideEffectFree(IArgumentMatcher matcher) {
+        if (matcher instanceof Captures) {
+            return false;
+        }
+        if (matcher instanceof And) {
+            return isSideEffectFree(((And) matcher).getMatchers());
+        }
+        if (matcher instanceof Or) {
+            return isSideEffectFree(((Or) matcher).getMatchers());
+        }
+        if (matcher instanceof Not) {
+            return isSideEffectFree(((Not) matcher).getMatcher());
+        }
+        // Custom matchers can do anything
+        return matcher.getClass().getName().startsWith(EASYMOCK_MATCHERS_PACKAGE);
+    }
+
+    public Object[] getArguments() {
+        return invocation.getArguments();
+    }
+
+    public Object getMock() {
+        return invocation.getMock();
+    }
+
     public Method getMethod() {
         return invocation.getMethod();
     }
+
+    public int getMethodId() {
+        return invocation.getMethodId();
+    }
 }
@@ -0,0 +1,694 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import net.sf.cglib.proxy.Factory;
+import org.easymock.ConstructorArgs;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objenesis.instantiator.sun.UnsafeFactoryInstantiator;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Factory generating a mock for a class as a hidden class (Java 15+). Unlike the classes generated by
+ * {@link ClassProxyFactory}, a hidden class isn't pinned by its class loader. It is unloaded as soon as no mock
+ * uses it anymore.
+ * <p>
+ * The mocked class is subclassed directly with ASM, in its own package, so package scoped methods are mocked like
+ * with cglib. When a hidden class can't be defined (older JVM, class from a package not opened to EasyMock like the
+ * JDK ones), the mock is created by {@link ClassProxyFactory} instead. It is also the case for serializable classes,
+ * since a hidden class has no name to be serialized with, and when a custom {@link IClassInstantiator} is set.
+ * <p>
+ * The generated class only references JDK classes. It holds the handler and the mocked methods in two public
+ * instance fields and the intercepted methods in a public static array. The handler is called through a static
+ * {@code MethodHandle} taking the index of the method in this array, so the method id is known without looking it up.
+ */
+public class HiddenClassProxyFactory implements IProxyFactory {
+
+    private static final String SUFFIX = "$$EasyMockHidden";
+
+    private static final String HANDLER_FIELD = "$easymock$handler";
+
+    private static final String MOCKED_FIELD = "$easymock$mocked";
+
+    private static final String METHODS_FIELD = "$easymock$methods";
+
+    private static final String INVOKER_FIELD = "$easymock$invoker";
+
+    private static final String HANDLER_DESCRIPTOR = Type.getDescriptor(InvocationHandler.class);
+
+    private static final String METHODS_DESCRIPTOR = Type.getDescriptor(Method[].class);
+
+    private static final String INVOKER_DESCRIPTOR = Type.getDescriptor(MethodHandle.class);
+
+    /** Type of the invoker: handler, mock, method index and arguments */
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, InvocationHandler.class,
+        Object.class, int.class, Object[].class);
+
+    /** Calls {@link HiddenMockHandler#invoke(Object, int, Object[])}, with the {@link #INVOKER_TYPE} type */
+    private static final MethodHandle INVOKER = findInvoker();
+
+    private static final Method PRIVATE_LOOKUP_IN = findPrivateLookupIn();
+
+    private static final Object NO_CLASS_OPTIONS = createNoClassOptions();
+
+    private static final Method DEFINE_HIDDEN_CLASS = findDefineHiddenClass();
+
+    private static final ClassValue<MockClassFields> FIELDS = new ClassValue<MockClassFields>() {
+        @Override
+        protected MockClassFields computeValue(Class<?> type) {
+            return new MockClassFields(type);
+        }
+    };
+
+    private final MockClassCache mockClasses = new MockClassCache();
+
+    private final ClassProxyFactory fallback = new ClassProxyFactory();
+
+    /**
+     * @return if the current JVM is able to define hidden classes
+     */
+    public static boolean isSupported() {
+        return DEFINE_HIDDEN_CLASS != null;
+    }
+
+    /**
+     * @param o an object
+     * @return if the object is a mock created by this factory
+     */
+    public static boolean isHiddenMock(Object o) {
+        return getHandler(o) != null;
+    }
+
+    /**
+     * @param o an object
+     * @return the handler of the mock or null if the object isn't a mock created by this factory
+     */
+    private static HiddenMockHandler getHandler(Object o) {
+        Class<?> c = o.getClass();
+        if (!c.getName().contains(SUFFIX + "/")) {
+            return null;
+        }
+        return FIELDS.get(c).getHandler(o);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T createProxy(Class<T> toMock, InvocationHandler handler, Method[] mockedMethods,
+            ConstructorArgs args) {
+        if (!canDefineMockClass(toMock, args)) {
+            return fallback.createProxy(toMock, handler, mockedMethods, args);
+        }
+
+        MethodHandles.Lookup lookup = privateLookupIn(toMock);
+        if (lookup == null) {
+            return fallback.createProxy(toMock, handler, mockedMethods, args);
+        }
+
+        Class<?> mockClass;
+        try {
+            mockClass = mockClasses.get(toMock, c -> defineMockClass(c, lookup));
+        } catch (HiddenClassDefinitionException e) {
+            return fallback.createProxy(toMock, handler, mockedMethods, args);
+        }
+
+        Object mock;
+
+        if (args != null) {
+            // Really instantiate the class
+            mock = MockConstructors.newInstance(mockClass, args.getConstructor(), args.getInitArgs());
+        } else {
+            // Do not call any constructor. The usual instantiators generate code referencing the class
+            // by name, which isn't possible with a hidden class. Unsafe is the only way
+            mock = new UnsafeFactoryInstantiator<>(mockClass).newInstance();
+        }
+
+        MockClassFields fields = FIELDS.get(mockClass);
+        fields.setMocked(mock, mockedMethods);
+        fields.setHandler(mock, new HiddenMockHandler(handler, fields));
+        return (T) mock;
+    }
+
+    public boolean isProxyClassCached(Class<?> toMock) {
+        return mockClasses.contains(toMock) || fallback.isProxyClassCached(toMock);
+    }
+
+    private static boolean canDefineMockClass(Class<?> toMock, ConstructorArgs args) {
+        // A hidden class can't be found back by name when deserializing
+        if (Serializable.class.isAssignableFrom(toMock)) {
+            return false;
+        }
+        // Respect an instantiator set by the user. Only the default one is replaced by Unsafe
+        return args != null || ClassInstantiatorFactory.getInstantiator().getClass() == ObjenesisClassInstantiator.class;
+    }
+
+    public InvocationHandler getInvocationHandler(Object mock) {
+        if (mock instanceof Factory) {
+            return fallback.getInvocationHandler(mock);
+        }
+        HiddenMockHandler handler = getHandler(mock);
+        if (handler == null) {
+            // Same exception as the cast done by the cglib factory
+            throw new ClassCastException(mock.getClass().getName() + " is not a mock");
+        }
+        return handler.delegate;
+    }
+
+    private static MethodHandles.Lookup privateLookupIn(Class<?> toMock) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            return (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, toMock, MethodHandles.lookup());
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            // The package isn't opened to us
+            return null;
+        }
+    }
+
+    private static Class<?> defineMockClass(Class<?> toMock, MethodHandles.Lookup lookup) {
+        Method[] methods = findMethodsToIntercept(toMock);
+        byte[] bytecode = generateBytecode(toMock, methods);
+        Class<?> mockClass;
+        try {
+            MethodHandles.Lookup hidden = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(lookup, bytecode, false,
+                NO_CLASS_OPTIONS);
+            mockClass = hidden.lookupClass();
+            mockClass.getField(METHODS_FIELD).set(null, methods);
+            mockClass.getField(INVOKER_FIELD).set(null, INVOKER);
+        } catch (IllegalAccessException | InvocationTargetException | NoSuchFieldException e) {
+            throw new HiddenClassDefinitionException(e);
+        }
+        return mockClass;
+    }
+
+    /**
+     * Find all the methods the mock class can override. Only the most specific declaration of each method is kept.
+     * Bridges are not intercepted since they call the bridged method, which is. A generic bridge still hides the
+     * declarations it overrides in the superclasses. A visibility bridge, calling the same method in the superclass, is
+     * ignored so that this method is intercepted instead.
+     *
+     * @param toMock the mocked class
+     * @return the methods to intercept
+     */
+    static Method[] findMethodsToIntercept(Class<?> toMock) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+
+        for (Class<?> c = toMock; c != null; c = c.getSuperclass()) {
+            for (Method m : c.getDeclaredMethods()) {
+                addMostSpecific(methods, m);
+            }
+        }
+
+        // Default and abstract methods not implemented in the class hierarchy
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+        Set<Class<?>> visited = new HashSet<>();
+        for (Class<?> c = toMock; c != null; c = c.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(c.getInterfaces()));
+        }
+        while (!interfaces.isEmpty()) {
+            Class<?> i = interfaces.poll();
+            if (visited.add(i)) {
+                for (Method m : i.getDeclaredMethods()) {
+                    addMostSpecific(methods, m);
+                }
+                interfaces.addAll(Arrays.asList(i.getInterfaces()));
+            }
+        }
+
+        List<Method> result = new ArrayList<>(methods.size());
+        for (Method m : methods.values()) {
+            if (!m.isBridge() && canOverride(toMock, m)) {
+                result.add(m);
+            }
+        }
+        return result.toArray(new Method[0]);
+    }
+
+    private static void addMostSpecific(Map<String, Method> methods, Method m) {
+        int modifiers = m.getModifiers();
+        if ((m.isSynthetic() && !isGenericBridge(m)) || Modifier.isStatic(modifiers) || Modifier.isPrivate(modifiers)) {
+            return;
+        }
+        // The return type is part of the key since a bridge has the same parameters as the method it bridges to
+        methods.putIfAbsent(m.getName() + Type.getMethodDescriptor(m), m);
+    }
+
+    private static boolean isGenericBridge(Method bridge) {
+        if (!bridge.isBridge()) {
+            return false;
+        }
+        // The bridged method is declared next to the bridge. It isn't the case for a visibility bridge
+        for (Method m : bridge.getDeclaringClass().getDeclaredMethods()) {
+            if (!m.isBridge() && m.getName().equals(bridge.getName())
+                    && m.getParameterCount() == bridge.getParameterCount()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean canOverride(Class<?> toMock, Method m) {
+        int modifiers = m.getModifiers();
+        if (Modifier.isFinal(modifiers)) {
+            return false;
+        }
+        // Overriding finalize would slow down the garbage collection of every mock
+        if (m.getDeclaringClass() == Object.class && m.getName().equals("finalize")) {
+            return false;
+        }
+        if (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers)) {
+            return true;
+        }
+        // Package scope, only in the same runtime package
+        Class<?> declaringClass = m.getDeclaringClass();
+        return declaringClass.getClassLoader() == toMock.getClassLoader()
+                && packageName(declaringClass).equals(packageName(toMock));
+    }
+
+    private static String packageName(Class<?> c) {
+        String name = c.getName();
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? "" : name.substring(0, dot);
+    }
+
+    private static byte[] generateBytecode(Class<?> toMock, Method[] methods) {
+        String superName = Type.getInternalName(toMock);
+        String className = superName + SUFFIX;
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // Only references are merged at the branches we generate, so this is always safe
+                return "java/lang/Object";
+            }
+        };
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC, className, null,
+            superName, null);
+
+        cw.visitField(Opcodes.ACC_PUBLIC, HANDLER_FIELD, HANDLER_DESCRIPTOR, null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PUBLIC, MOCKED_FIELD, "[Z", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, METHODS_FIELD, METHODS_DESCRIPTOR, null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, INVOKER_FIELD, INVOKER_DESCRIPTOR, null, null).visitEnd();
+
+        for (Constructor<?> c : toMock.getDeclaredConstructors()) {
+            if (!Modifier.isPrivate(c.getModifiers())) {
+                generateConstructor(cw, superName, c);
+            }
+        }
+
+        for (int i = 0; i < methods.length; i++) {
+            generateMethod(cw, className, superName, methods[i], i);
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void generateConstructor(ClassWriter cw, String superName, Constructor<?> c) {
+        String descriptor = Type.getConstructorDescriptor(c);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", descriptor, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        loadArguments(mv, Type.getArgumentTypes(descriptor));
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", descriptor, false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void generateMethod(ClassWriter cw, String className, String superName, Method m, int index) {
+        String descriptor = Type.getMethodDescriptor(m);
+        Type[] argumentTypes = Type.getArgumentTypes(m);
+        Type returnType = Type.getReturnType(m);
+
+        int access = m.getModifiers() & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED);
+        if (m.isVarArgs()) {
+            access |= Opcodes.ACC_VARARGS;
+        }
+        String[] exceptions = new String[m.getExceptionTypes().length];
+        for (int i = 0; i < exceptions.length; i++) {
+            exceptions[i] = Type.getInternalName(m.getExceptionTypes()[i]);
+        }
+
+        MethodVisitor mv = cw.visitMethod(access, m.getName(), descriptor, null, exceptions);
+        mv.visitCode();
+
+        // We conveniently mock abstract methods by default. The others call the real method if not mocked
+        // or when called by the constructor (the handler isn't set yet)
+        if (Modifier.isAbstract(m.getModifiers())) {
+            // Called by the constructor, there is nothing to call. Same error as with a cglib mock
+            Label dispatch = new Label();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, className, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+            mv.visitJumpInsn(Opcodes.IFNONNULL, dispatch);
+            mv.visitTypeInsn(Opcodes.NEW, "java/lang/AbstractMethodError");
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitLdcInsn(m.toString());
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/AbstractMethodError", "<init>",
+                "(Ljava/lang/String;)V", false);
+            mv.visitInsn(Opcodes.ATHROW);
+            mv.visitLabel(dispatch);
+        } else {
+            Label callSuper = new Label();
+            Label dispatch = new Label();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, className, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+            mv.visitJumpInsn(Opcodes.IFNULL, callSuper);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, className, MOCKED_FIELD, "[Z");
+            mv.visitJumpInsn(Opcodes.IFNULL, dispatch);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, className, MOCKED_FIELD, "[Z");
+            pushInt(mv, index);
+            mv.visitInsn(Opcodes.BALOAD);
+            mv.visitJumpInsn(Opcodes.IFNE, dispatch);
+
+            mv.visitLabel(callSuper);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            loadArguments(mv, argumentTypes);
+            // Called on the superclass even for a default method. The resolution will find it in the interfaces
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, m.getName(), descriptor, false);
+            mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+
+            mv.visitLabel(dispatch);
+        }
+
+        mv.visitFieldInsn(Opcodes.GETSTATIC, className, INVOKER_FIELD, INVOKER_DESCRIPTOR);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, className, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        pushInt(mv, index);
+
+        pushInt(mv, argumentTypes.length);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        int local = 1;
+        for (int i = 0; i < argumentTypes.length; i++) {
+            mv.visitInsn(Opcodes.DUP);
+            pushInt(mv, i);
+            mv.visitVarInsn(argumentTypes[i].getOpcode(Opcodes.ILOAD), local);
+            box(mv, argumentTypes[i]);
+            mv.visitInsn(Opcodes.AASTORE);
+            local += argumentTypes[i].getSize();
+        }
+
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(MethodHandle.class), "invokeExact",
+            INVOKER_TYPE.toMethodDescriptorString(), false);
+
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(Opcodes.POP);
+        } else {
+            unbox(mv, returnType);
+        }
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void loadArguments(MethodVisitor mv, Type[] argumentTypes) {
+        int local = 1;
+        for (Type t : argumentTypes) {
+            mv.visitVarInsn(t.getOpcode(Opcodes.ILOAD), local);
+            local += t.getSize();
+        }
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        Type wrapper = wrapperType(type);
+        if (wrapper == null) {
+            return;
+        }
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper.getInternalName(), "valueOf",
+            Type.getMethodDescriptor(wrapper, type), false);
+    }
+
+    private static void unbox(MethodVisitor mv, Type type) {
+        Type wrapper = wrapperType(type);
+        if (wrapper == null) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+            return;
+        }
+        // Like a cast to the primitive type, numbers can be returned for any numeric type
+        String owner = type.getSort() == Type.BOOLEAN || type.getSort() == Type.CHAR
+                ? wrapper.getInternalName()
+                : "java/lang/Number";
+        mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, type.getClassName() + "Value",
+            Type.getMethodDescriptor(type), false);
+    }
+
+    private static Type wrapperType(Type type) {
+        switch (type.getSort()) {
+        case Type.BOOLEAN:
+            return Type.getType(Boolean.class);
+        case Type.BYTE:
+            return Type.getType(Byte.class);
+        case Type.CHAR:
+            return Type.getType(Character.class);
+        case Type.SHORT:
+            return Type.getType(Short.class);
+        case Type.INT:
+            return Type.getType(Integer.class);
+        case Type.LONG:
+            return Type.getType(Long.class);
+        case Type.FLOAT:
+            return Type.getType(Float.class);
+        case Type.DOUBLE:
+            return Type.getType(Double.class);
+        default:
+            return null;
+        }
+    }
+
+    private static MethodHandle findInvoker() {
+        try {
+            return MethodHandles.lookup()
+                .findVirtual(HiddenMockHandler.class, "invoke",
+                    MethodType.methodType(Object.class, Object.class, int.class, Object[].class))
+                .asType(INVOKER_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // ///CLOVER:OFF
+            throw new RuntimeException(e);
+            // ///CLOVER:ON
+        }
+    }
+
+    private static Method findPrivateLookupIn() {
+        try {
+            return MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        } catch (NoSuchMethodException e) {
+            // Before Java 9
+            return null;
+        }
+    }
+
+    private static Object createNoClassOptions() {
+        try {
+            Class<?> classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            return Array.newInstance(classOption, 0);
+        } catch (ClassNotFoundException e) {
+            // Before Java 15
+            return null;
+        }
+    }
+
+    private static Method findDefineHiddenClass() {
+        if (PRIVATE_LOOKUP_IN == null || NO_CLASS_OPTIONS == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class,
+                NO_CLASS_OPTIONS.getClass());
+        } catch (NoSuchMethodException e) {
+            // ///CLOVER:OFF
+            return null;
+            // ///CLOVER:ON
+        }
+    }
+
+    /**
+     * Access to the fields of a generated mock class.
+     */
+    private static class MockClassFields {
+
+        private final Field handler;
+
+        private final Field mocked;
+
+        private final Method[] methods;
+
+        /** The {@link MethodIds} id of each intercepted method */
+        private final int[] methodIds;
+
+        MockClassFields(Class<?> mockClass) {
+            try {
+                handler = mockClass.getField(HANDLER_FIELD);
+                mocked = mockClass.getField(MOCKED_FIELD);
+                methods = (Method[]) mockClass.getField(METHODS_FIELD).get(null);
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new IllegalArgumentException("Not a mock: " + mockClass.getName(), e);
+            }
+            methodIds = new int[methods.length];
+            for (int i = 0; i < methods.length; i++) {
+                methodIds[i] = MethodIds.getId(methods[i]);
+            }
+        }
+
+        HiddenMockHandler getHandler(Object mock) {
+            try {
+                return (HiddenMockHandler) handler.get(mock);
+            } catch (IllegalAccessException e) {
+                // ///CLOVER:OFF
+                throw new RuntimeException(e);
+                // ///CLOVER:ON
+            }
+        }
+
+        void setHandler(Object mock, HiddenMockHandler value) {
+            try {
+                handler.set(mock, value);
+            } catch (IllegalAccessException e) {
+                // ///CLOVER:OFF
+                throw new RuntimeException(e);
+                // ///CLOVER:ON
+            }
+        }
+
+        void setMocked(Object mock, Method[] mockedMethods) {
+            if (mockedMethods == null) {
+                return;
+            }
+            Set<Method> mockedSet = new HashSet<>(Arrays.asList(mockedMethods));
+            boolean[] value = new boolean[methods.length];
+            for (int i = 0; i < methods.length; i++) {
+                value[i] = mockedSet.contains(methods[i]);
+            }
+            try {
+                mocked.set(mock, value);
+            } catch (IllegalAccessException e) {
+                // ///CLOVER:OFF
+                throw new RuntimeException(e);
+                // ///CLOVER:ON
+            }
+        }
+    }
+
+    /**
+     * Handler set in the mock. Makes sure EasyMock own calls to {@code fillInStackTrace} reach the real method.
+     */
+    private static class HiddenMockHandler implements InvocationHandler {
+
+        private final InvocationHandler delegate;
+
+        /** The delegate when it can be given the method id. Null otherwise */
+        private final ObjectMethodsFilter filter;
+
+        private final Method[] methods;
+
+        private final int[] methodIds;
+
+        HiddenMockHandler(InvocationHandler delegate, MockClassFields fields) {
+            this.delegate = delegate;
+            this.filter = delegate instanceof ObjectMethodsFilter ? (ObjectMethodsFilter) delegate : null;
+            this.methods = fields.methods;
+            this.methodIds = fields.methodIds;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return delegate.invoke(proxy, method, args);
+        }
+
+        /**
+         * Called by the mock through {@link #INVOKER}.
+         *
+         * @param proxy the mock
+         * @param index index of the invoked method in the intercepted methods of the mock class
+         * @param args the arguments
+         * @return the invocation result
+         * @throws Throwable the invocation exception
+         */
+        Object invoke(Object proxy, int index, Object[] args) throws Throwable {
+            Method method = methods[index];
+            if (proxy instanceof Throwable && method.getName().equals("fillInStackTrace")
+                    && isCallerMockInvocationHandlerInvoke(new Throwable())) {
+                return proxy;
+            }
+            if (filter != null) {
+                return filter.invoke(proxy, method, methodIds[index], args);
+            }
+            return delegate.invoke(proxy, method, args);
+        }
+
+        private static boolean isCallerMockInvocationHandlerInvoke(Throwable e) {
+            // The frame of the mock class is hidden from the stack trace by default, so look at the next two frames
+            StackTraceElement[] elements = e.getStackTrace();
+            for (int i = 1; i < Math.min(3, elements.length); i++) {
+                if (elements[i].getClassName().equals(MockInvocationHandler.class.getName())
+                        && elements[i].getMethodName().equals("invoke")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Thrown when the hidden class can't be defined. The mock is then created by cglib.
+     */
+    private static class HiddenClassDefinitionException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        HiddenClassDefinitionException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -29,13 +29,51 @@ public interface IMocksBehavior {
 
     void makeThreadSafe(boolean isThreadSafe);
 
+    void lockPerMethod(boolean lockPerMethod);
+
     void shouldBeUsedInOneThread(boolean shouldBeUsedInOneThread);
 
+    void journal(MappedInvocationJournal journal);
+
+    void collectMetrics(MocksControlMetrics metrics);
+
     // replay
     Result addActual(Invocation invocation);
 
+    /**
+     * Returns the result of an invocation if it can be found without changing the state of the behavior. It means
+     * the invocation can be replayed without any locking. Otherwise, {@link #addActual(Invocation)} should be
+     * called.
+     *
+     * @param invocation the actual invocation
+     * @return the result or null if the invocation needs to go through {@link #addActual(Invocation)}
+     */
+    Result getStatelessResult(Invocation invocation);
+
     boolean isThreadSafe();
 
+    /**
+     * @return if matching or answering an invocation might call {@link LastControl#getCurrentInvocation()}. If not,
+     *         the invocation doesn't need to be pushed
+     */
+    boolean isCurrentInvocationNeeded();
+
+    /**
+     * @return if invocations of different mock methods can be replayed in parallel. Only true when asked and when the
+     *         order of the calls isn't checked
+     */
+    boolean isLockPerMethod();
+
+    /**
+     * @return the journal of the replayed invocations or null if they aren't journaled
+     */
+    MappedInvocationJournal getJournal();
+
+    /**
+     * @return the metrics of the replayed invocations or null if they aren't collected
+     */
+    MocksControlMetrics getMetrics();
+
     void checkThreadSafety();
 
     // verify
@@ -15,7 +15,11 @@
  */
 package org.easymock.internal;
 
+import org.easymock.ControlMetrics;
 import org.easymock.IAnswer;
+import org.easymock.InvocationJournal;
+
+import java.nio.file.Path;
 
 /**
  * @author OFFIS, Tammo Freese
@@ -52,6 +56,12 @@ public interface IMocksControlState {
 
     void makeThreadSafe(boolean threadSafe);
 
+    void lockPerMethod(boolean lockPerMethod);
+
+    InvocationJournal journal(Path file, int size);
+
+    ControlMetrics collectMetrics();
+
     void checkIsUsedInOneThread(boolean shouldBeUsedInOneThread);
 
     void replay();
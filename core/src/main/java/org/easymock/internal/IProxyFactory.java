@@ -45,4 +45,14 @@ public interface IProxyFactory {
      * @return the handler handling method calls for the {@code mock}
      */
     InvocationHandler getInvocationHandler(Object mock);
+
+    /**
+     * Tells if creating a proxy of {@code toMock} will reuse an already generated class.
+     *
+     * @param toMock the class to mock by the factory
+     * @return true if the proxy class is cached, false if it isn't or if it isn't known
+     */
+    default boolean isProxyClassCached(Class<?> toMock) {
+        return false;
+    }
 }
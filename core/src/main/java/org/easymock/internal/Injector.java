@@ -60,6 +60,19 @@ public class Injector {
      * @since 3.2
      */
     public static void injectMocks(Object host) {
+        Object event = JfrEvent.INJECT_MOCKS.begin();
+        if (event == null) {
+            injectMocksInHost(host);
+            return;
+        }
+        try {
+            injectMocksInHost(host);
+        } finally {
+            JfrEvent.INJECT_MOCKS.commit(event, host.getClass().getName());
+        }
+    }
+
+    private static void injectMocksInHost(Object host) {
 
         InjectionPlan injectionPlan = new InjectionPlan();
 
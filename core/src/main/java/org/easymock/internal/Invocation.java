@@ -22,7 +22,7 @@ import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
 
 import static java.lang.Character.*;
 
@@ -31,7 +31,7 @@ import static java.lang.Character.*;
  */
 public class Invocation implements Serializable {
 
-    private static final long serialVersionUID = 1604995470419943411L;
+    private static final long serialVersionUID = 4879729379970387920L;
 
     private static final Object[] NO_ARGS = {};
 
@@ -39,41 +39,100 @@ public class Invocation implements Serializable {
 
     private transient Method method;
 
-    private final Object[] arguments;
+    private transient int methodId;
 
-    private final Collection<Captures<?>> currentCaptures = new ArrayList<>(0);
+    /** Arguments with the varargs expanded. Computed when first needed */
+    private Object[] arguments;
+
+    /** Arguments as received by the mock */
+    private transient Object[] rawArguments;
+
+    /** Created by the first capture. Most invocations have none */
+    private List<Captures<Object>> currentCaptures;
+
+    /** Value captured by each of the current captures */
+    private List<Object> currentCaptureValues;
+
+    /** Expectations and stubs matched against this invocation since last taken. -1 when not counted */
+    private transient int matchCount = -1;
 
     public Invocation(Object mock, Method method, Object[] args) {
+        this(mock, method, MethodIds.getId(method), args);
+    }
+
+    public Invocation(Object mock, Method method, int methodId, Object[] args) {
         this.mock = mock;
         this.method = method;
-        this.arguments = expandVarArgs(method.isVarArgs(), args);
+        this.methodId = methodId;
+        if (method.isVarArgs()) {
+            this.rawArguments = args;
+        } else {
+            this.arguments = args == null ? NO_ARGS : args;
+        }
     }
 
-    private static Object[] expandVarArgs(boolean isVarArgs, Object[] args) {
-        if (!isVarArgs) {
-            return args == null ? NO_ARGS : args;
-        }
+    private static Object[] expandVarArgs(Object[] args) {
         if (args[args.length - 1] == null) {
             return args;
         }
-        Object[] varArgs = createObjectArray(args[args.length - 1]);
+        Object varArgs = args[args.length - 1];
         int nonVarArgsCount = args.length - 1;
-        int varArgsCount = varArgs.length;
+        int varArgsCount = Array.getLength(varArgs);
         Object[] newArgs = new Object[nonVarArgsCount + varArgsCount];
         System.arraycopy(args, 0, newArgs, 0, nonVarArgsCount);
-        System.arraycopy(varArgs, 0, newArgs, nonVarArgsCount, varArgsCount);
+        copyToObjectArray(varArgs, newArgs, nonVarArgsCount);
         return newArgs;
     }
 
-    private static Object[] createObjectArray(Object array) {
+    /**
+     * Copy an array into an object array, boxing the primitives if needed. Typed loops are used instead of
+     * {@code Array.get} which is quite slow.
+     */
+    private static void copyToObjectArray(Object array, Object[] dest, int destPos) {
         if (array instanceof Object[]) {
-            return (Object[]) array;
-        }
-        Object[] result = new Object[Array.getLength(array)];
-        for (int i = 0; i < Array.getLength(array); i++) {
-            result[i] = Array.get(array, i);
+            Object[] a = (Object[]) array;
+            System.arraycopy(a, 0, dest, destPos, a.length);
+        } else if (array instanceof int[]) {
+            int[] a = (int[]) array;
+            for (int i = 0; i < a.length; i++) {
+                dest[destPos + i] = a[i];
+            }
+        } else if (array instanceof long[]) {
+            long[] a = (long[]) array;
+            for (int i = 0; i < a.length; i++) {
+                dest[destPos + i] = a[i];
+            }
+        } else if (array instanceof double[]) {
+            double[] a = (double[]) array;
+            for (int i = 0; i < a.length; i++) {
+                dest[destPos + i] = a[i];
+            }
+        } else if (array instanceof boolean[]) {
+            boolean[] a = (boolean[]) array;
+            for (int i = 0; i < a.length; i++) {
+                dest[destPos + i] = a[i];
+            }
+        } else if (array instanceof byte[]) {
+            byte[] a = (byte[]) array;
+            for (int i = 0; i < a.length; i++) {
+                dest[destPos + i] = a[i];
+            }
+        } else if (array instanceof char[]) {
+            char[] a = (char[]) array;
+            for (int i = 0; i < a.length; i++) {
+                dest[destPos + i] = a[i];
+            }
+        } else if (array instanceof short[]) {
+            short[] a = (short[]) array;
+            for (int i = 0; i < a.length; i++) {
+                dest[destPos + i] = a[i];
+            }
+        } else {
+            float[] a = (float[]) array;
+            for (int i = 0; i < a.length; i++) {
+                dest[destPos + i] = a[i];
+            }
         }
-        return result;
     }
 
     public Object getMock() {
@@ -84,8 +143,20 @@ public class Invocation implements Serializable {
         return method;
     }
 
+    /**
+     * @return the id of the invoked method as given by {@link MethodIds}
+     */
+    public int getMethodId() {
+        return methodId;
+    }
+
     public Object[] getArguments() {
-        return arguments;
+        Object[] result = arguments;
+        if (result == null) {
+            // Varargs are only expanded when someone looks at the arguments
+            arguments = result = expandVarArgs(rawArguments);
+        }
+        return result;
     }
 
     @Override
@@ -96,8 +167,8 @@ public class Invocation implements Serializable {
 
         Invocation other = (Invocation) o;
 
-        return this.mock == other.mock && this.method.equals(other.method)
-                && this.equalArguments(other.arguments);
+        return this.mock == other.mock && this.methodId == other.methodId
+                && this.equalArguments(other.getArguments());
     }
 
     @Override
@@ -107,15 +178,16 @@ public class Invocation implements Serializable {
 
     @Override
     public String toString() {
-        return getMockAndMethodName() + "(" + ArgumentToString.argumentsToString(arguments) + ")";
+        return getMockAndMethodName() + "(" + ArgumentToString.argumentsToString(getArguments()) + ")";
     }
 
     private boolean equalArguments(Object[] arguments) {
-        if (this.arguments.length != arguments.length) {
+        Object[] myArguments = getArguments();
+        if (myArguments.length != arguments.length) {
             return false;
         }
-        for (int i = 0; i < this.arguments.length; i++) {
-            Object myArgument = this.arguments[i];
+        for (int i = 0; i < myArguments.length; i++) {
+            Object myArgument = myArguments[i];
             Object otherArgument = arguments[i];
 
             if (isPrimitiveParameter(i)) {
@@ -139,6 +211,35 @@ public class Invocation implements Serializable {
         return parameterTypes[parameterPosition].isPrimitive();
     }
 
+    /**
+     * Start counting the expectations and stubs matched against this invocation. Only done when collecting metrics.
+     */
+    void countMatches() {
+        matchCount = 0;
+    }
+
+    /**
+     * An expectation or stub on the same mock and method is matched against this invocation.
+     */
+    void countMatch() {
+        if (matchCount >= 0) {
+            matchCount++;
+        }
+    }
+
+    /**
+     * @return the number of expectations and stubs matched against this invocation since the last call, 0 if not
+     *         counted
+     */
+    int takeMatchCount() {
+        if (matchCount <= 0) {
+            return 0;
+        }
+        int count = matchCount;
+        matchCount = 0;
+        return count;
+    }
+
     public String getMockAndMethodName() {
         String methodName = method.getName();
         // This can occur when using PowerMock. They do something that causes the mock
@@ -159,21 +260,50 @@ public class Invocation implements Serializable {
     }
 
     public void addCapture(Captures<Object> capture, Object value) {
-        capture.setPotentialValue(value);
+        if (currentCaptures == null) {
+            currentCaptures = new ArrayList<>(1);
+            currentCaptureValues = new ArrayList<>(1);
+        }
         currentCaptures.add(capture);
+        currentCaptureValues.add(value);
+    }
+
+    /**
+     * Returns the value last given to a capture matcher during this invocation and not cleared yet.
+     *
+     * @param capture
+     *            the capture matcher
+     * @param defaultValue
+     *            returned when the matcher captured nothing during this invocation
+     * @return the captured value or {@code defaultValue}
+     */
+    public Object getCaptureValue(Captures<?> capture, Object defaultValue) {
+        if (currentCaptures == null) {
+            return defaultValue;
+        }
+        for (int i = currentCaptures.size() - 1; i >= 0; i--) {
+            if (currentCaptures.get(i) == capture) {
+                return currentCaptureValues.get(i);
+            }
+        }
+        return defaultValue;
     }
 
     public void validateCaptures() {
-        for (Captures<?> c : currentCaptures) {
-            c.validateCapture();
+        if (currentCaptures == null) {
+            return;
+        }
+        for (int i = 0; i < currentCaptures.size(); i++) {
+            currentCaptures.get(i).validateCapture(currentCaptureValues.get(i));
         }
     }
 
     public void clearCaptures() {
-        for (Captures<?> c : currentCaptures) {
-            c.setPotentialValue(null);
+        if (currentCaptures == null) {
+            return;
         }
         currentCaptures.clear();
+        currentCaptureValues.clear();
     }
 
     private boolean toStringIsDefined(Object o) {
@@ -205,6 +335,7 @@ public class Invocation implements Serializable {
         stream.defaultReadObject();
         try {
             method = ((MethodSerializationWrapper) stream.readObject()).getMethod();
+            methodId = MethodIds.getId(method);
         } catch (NoSuchMethodException e) {
             // ///CLOVER:OFF
             throw new IOException(e.toString());
@@ -213,6 +344,7 @@ public class Invocation implements Serializable {
     }
 
     private void writeObject(java.io.ObjectOutputStream stream) throws IOException {
+        getArguments(); // the expanded arguments are serialized
         stream.defaultWriteObject();
         stream.writeObject(new MethodSerializationWrapper(method));
     }
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.EasyMock;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java Flight Recorder event emitted by EasyMock. EasyMock still runs on Java 8 so the events are created dynamically,
+ * through reflection on {@code jdk.jfr.EventFactory}. Nothing is done, and {@code jdk.jfr} isn't even loaded, unless
+ * {@link EasyMock#ENABLE_JFR_EVENTS} is set. {@link #begin()} then returns null and the caller skips the event.
+ */
+public final class JfrEvent {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(
+        EasyMockProperties.getInstance().getProperty(EasyMock.ENABLE_JFR_EVENTS));
+
+    /** A mock is created. Fields: mocked type, if it's an interface, if the mock class was cached */
+    public static final JfrEvent CREATE_MOCK = new JfrEvent(ENABLED, "org.easymock.CreateMock", "Create Mock",
+        "A mock is created. The mock class is generated when not cached. The cache isn't known for interfaces", true,
+        field(String.class, "mockedType", "Mocked Type"), field(boolean.class, "interfaceMock", "Interface"),
+        field(boolean.class, "cacheHit", "Cache Hit"));
+
+    /** A mock is called in replay state. Fields: mock and method, time matching, time waiting for the lock */
+    public static final JfrEvent REPLAY = new JfrEvent(ENABLED, "org.easymock.Replay", "Replay",
+        "A mock is called in replay state", false, field(String.class, "method", "Method"),
+        timespan("matchDuration", "Match Duration"), timespan("lockWait", "Lock Wait"));
+
+    /** Mocks are verified. Field: if the verification passed */
+    public static final JfrEvent VERIFY = new JfrEvent(ENABLED, "org.easymock.Verify", "Verify",
+        "The mocks of a control are verified", true, field(boolean.class, "passed", "Passed"));
+
+    /** Mocks are injected in a test. Field: the test class */
+    public static final JfrEvent INJECT_MOCKS = new JfrEvent(ENABLED, "org.easymock.InjectMocks", "Inject Mocks",
+        "Mocks are created and injected in a test", true, field(String.class, "testClass", "Test Class"));
+
+    /** {@code jdk.jfr.EventFactory} of this event. Null when disabled */
+    private final Object factory;
+
+    JfrEvent(boolean enabled, String name, String label, String description, boolean stackTrace, Field... fields) {
+        factory = enabled ? Jfr.createFactory(name, label, description, stackTrace, fields) : null;
+    }
+
+    /**
+     * @return if {@link EasyMock#ENABLE_JFR_EVENTS} is set and the JVM supports the events
+     */
+    public static boolean isAvailable() {
+        return REPLAY.isEnabled();
+    }
+
+    /**
+     * @return if this event can be recorded
+     */
+    boolean isEnabled() {
+        return factory != null;
+    }
+
+    /**
+     * Starts timing an event.
+     *
+     * @return the event or null if it doesn't need to be recorded
+     */
+    public Object begin() {
+        if (factory == null) {
+            return null;
+        }
+        return Jfr.begin(factory);
+    }
+
+    /**
+     * Ends an event started by {@link #begin()} and commits it if the recording needs it.
+     *
+     * @param event
+     *            the event
+     * @param values
+     *            value of each field, in the declared order
+     */
+    public void commit(Object event, Object... values) {
+        Jfr.commit(event, values);
+    }
+
+    static Field field(Class<?> type, String name, String label) {
+        return new Field(type, name, label, false);
+    }
+
+    static Field timespan(String name, String label) {
+        return new Field(long.class, name, label, true);
+    }
+
+    static final class Field {
+
+        private final Class<?> type;
+
+        private final String name;
+
+        private final String label;
+
+        private final boolean timespan;
+
+        Field(Class<?> type, String name, String label, boolean timespan) {
+            this.type = type;
+            this.name = name;
+            this.label = label;
+            this.timespan = timespan;
+        }
+    }
+
+    /**
+     * Reflective access to {@code jdk.jfr}. Only loaded when the events are enabled.
+     */
+    private static final class Jfr {
+
+        private static final Constructor<?> ANNOTATION;
+
+        private static final Constructor<?> VALUE_DESCRIPTOR;
+
+        private static final Method CREATE;
+
+        private static final Method NEW_EVENT;
+
+        private static final Method IS_ENABLED;
+
+        private static final Method BEGIN;
+
+        private static final Method END;
+
+        private static final Method SHOULD_COMMIT;
+
+        private static final Method SET;
+
+        private static final Method COMMIT;
+
+        static {
+            Constructor<?> annotation = null;
+            Constructor<?> valueDescriptor = null;
+            Method create = null;
+            Method newEvent = null;
+            Method isEnabled = null;
+            Method begin = null;
+            Method end = null;
+            Method shouldCommit = null;
+            Method set = null;
+            Method commit = null;
+            try {
+                annotation = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+                valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class,
+                    List.class);
+                Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+                create = eventFactory.getMethod("create", List.class, List.class);
+                newEvent = eventFactory.getMethod("newEvent");
+                Class<?> event = Class.forName("jdk.jfr.Event");
+                isEnabled = event.getMethod("isEnabled");
+                begin = event.getMethod("begin");
+                end = event.getMethod("end");
+                shouldCommit = event.getMethod("shouldCommit");
+                set = event.getMethod("set", int.class, Object.class);
+                commit = event.getMethod("commit");
+            } catch (ReflectiveOperationException e) {
+                // No JFR in this JVM (Java 8 before 8u262), the events are silently disabled
+                create = null;
+            }
+            ANNOTATION = annotation;
+            VALUE_DESCRIPTOR = valueDescriptor;
+            CREATE = create;
+            NEW_EVENT = newEvent;
+            IS_ENABLED = isEnabled;
+            BEGIN = begin;
+            END = end;
+            SHOULD_COMMIT = shouldCommit;
+            SET = set;
+            COMMIT = commit;
+        }
+
+        static Object createFactory(String name, String label, String description, boolean stackTrace,
+                Field... fields) {
+            if (CREATE == null) {
+                return null;
+            }
+            List<Object> eventAnnotations = Arrays.asList(annotation("jdk.jfr.Name", name),
+                annotation("jdk.jfr.Label", label), annotation("jdk.jfr.Description", description),
+                annotation("jdk.jfr.Category", new String[] { "EasyMock" }),
+                annotation("jdk.jfr.StackTrace", stackTrace));
+            List<Object> descriptors = new ArrayList<>(fields.length);
+            for (Field field : fields) {
+                List<Object> fieldAnnotations = new ArrayList<>(2);
+                fieldAnnotations.add(annotation("jdk.jfr.Label", field.label));
+                if (field.timespan) {
+                    fieldAnnotations.add(annotation("jdk.jfr.Timespan", "NANOSECONDS"));
+                }
+                descriptors.add(newInstance(VALUE_DESCRIPTOR, field.type, field.name, fieldAnnotations));
+            }
+            return invoke(CREATE, null, eventAnnotations, descriptors);
+        }
+
+        private static Object annotation(String type, Object value) {
+            Class<? extends Annotation> annotationType;
+            try {
+                annotationType = Class.forName(type).asSubclass(Annotation.class);
+            } catch (ClassNotFoundException e) {
+                // ///CLOVER:OFF
+                throw new IllegalStateException("Missing JFR annotation " + type, e);
+                // ///CLOVER:ON
+            }
+            return newInstance(ANNOTATION, annotationType, value);
+        }
+
+        static Object begin(Object factory) {
+            Object event = invoke(NEW_EVENT, factory);
+            // Not enabled in any recording. Skip the timing and the fields
+            if (!(Boolean) invoke(IS_ENABLED, event)) {
+                return null;
+            }
+            invoke(BEGIN, event);
+            return event;
+        }
+
+        static void commit(Object event, Object... values) {
+            invoke(END, event);
+            if (!(Boolean) invoke(SHOULD_COMMIT, event)) {
+                return;
+            }
+            for (int i = 0; i < values.length; i++) {
+                invoke(SET, event, i, values[i]);
+            }
+            invoke(COMMIT, event);
+        }
+
+        private static Object newInstance(Constructor<?> constructor, Object... args) {
+            try {
+                return constructor.newInstance(args);
+            } catch (InvocationTargetException e) {
+                // ///CLOVER:OFF
+                throw new IllegalStateException("Failed to create a JFR event", e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to create a JFR event", e);
+                // ///CLOVER:ON
+            }
+        }
+
+        private static Object invoke(Method method, Object target, Object... args) {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                // ///CLOVER:OFF
+                throw new IllegalStateException("Failed to call " + method.getName() + " on a JFR event",
+                    e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to call " + method.getName() + " on a JFR event", e);
+                // ///CLOVER:ON
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.easymock.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -31,11 +32,27 @@ public final class LastControl {
 
     private static final String NO_MATCHERS_FOUND = "no matchers found.";
 
-    private static final ThreadLocal<MocksControl> threadToControl = new ThreadLocal<>();
+    /**
+     * Everything EasyMock keeps for a thread. It only exists while something is kept so a thread doing nothing with
+     * EasyMock, or replaying without needing the current invocation, has nothing in its thread local map.
+     */
+    private static final class ThreadContext {
 
-    private static final ThreadLocal<List<Invocation>> threadToCurrentInvocation = new ThreadLocal<>();
+        private MocksControl control;
 
-    private static final ThreadLocal<List<IArgumentMatcher>> threadToArgumentMatcherStack = new ThreadLocal<>();
+        /** Stack of the invocations being replayed. More than one when a mock is called from an answer */
+        private Invocation[] invocations;
+
+        private int invocationCount;
+
+        private List<IArgumentMatcher> matchers;
+
+        boolean isEmpty() {
+            return control == null && invocationCount == 0 && matchers == null;
+        }
+    }
+
+    private static final ThreadLocal<ThreadContext> threadToContext = new ThreadLocal<>();
 
     // ///CLOVER:OFF
     private LastControl() {
@@ -43,50 +60,77 @@ public final class LastControl {
 
     // ///CLOVER:ON
 
+    private static ThreadContext getOrCreateContext() {
+        ThreadContext context = threadToContext.get();
+        if (context == null) {
+            context = new ThreadContext();
+            threadToContext.set(context);
+        }
+        return context;
+    }
+
+    private static void releaseIfEmpty(ThreadContext context) {
+        if (context.isEmpty()) {
+            threadToContext.remove();
+        }
+    }
+
+    private static List<IArgumentMatcher> getMatchers() {
+        ThreadContext context = threadToContext.get();
+        return context == null ? null : context.matchers;
+    }
+
     public static void reportLastControl(MocksControl control) {
         if (control != null) {
-            threadToControl.set(control);
+            getOrCreateContext().control = control;
         } else {
-            threadToControl.remove();
+            ThreadContext context = threadToContext.get();
+            if (context != null) {
+                context.control = null;
+                releaseIfEmpty(context);
+            }
         }
     }
 
     public static MocksControl lastControl() {
-        return threadToControl.get();
+        ThreadContext context = threadToContext.get();
+        return context == null ? null : context.control;
     }
 
     public static void reportMatcher(IArgumentMatcher matcher) {
-        List<IArgumentMatcher> stack = threadToArgumentMatcherStack.get();
-        if (stack == null) {
-            stack = new ArrayList<>(5); // methods of more than 5 parameters are quite rare
-            threadToArgumentMatcherStack.set(stack);
+        ThreadContext context = getOrCreateContext();
+        if (context.matchers == null) {
+            context.matchers = new ArrayList<>(5); // methods of more than 5 parameters are quite rare
         }
-        stack.add(matcher);
+        context.matchers.add(matcher);
     }
 
     public static List<IArgumentMatcher> pullMatchers() {
-        List<IArgumentMatcher> stack = threadToArgumentMatcherStack.get();
-        if (stack == null) {
+        ThreadContext context = threadToContext.get();
+        if (context == null || context.matchers == null) {
             return null;
         }
-        threadToArgumentMatcherStack.remove();
-        return new ArrayList<>(stack);
+        List<IArgumentMatcher> stack = context.matchers;
+        context.matchers = null;
+        releaseIfEmpty(context);
+        // Nobody else has it now, no need to copy
+        return stack;
     }
 
     public static void reportAnd(int count) {
-        List<IArgumentMatcher> stack = threadToArgumentMatcherStack.get();
+        List<IArgumentMatcher> stack = getMatchers();
         assertState(stack != null, NO_MATCHERS_FOUND);
         stack.add(new And(popLastArgumentMatchers(count)));
     }
 
     public static void reportNot() {
-        List<IArgumentMatcher> stack = threadToArgumentMatcherStack.get();
+        List<IArgumentMatcher> stack = getMatchers();
         assertState(stack != null, NO_MATCHERS_FOUND);
         stack.add(new Not(popLastArgumentMatchers(1).get(0)));
     }
 
     private static List<IArgumentMatcher> popLastArgumentMatchers(int count) {
-        List<IArgumentMatcher> stack = threadToArgumentMatcherStack.get();
+        List<IArgumentMatcher> stack = getMatchers();
         assertState(stack != null, NO_MATCHERS_FOUND);
         assertState(stack.size() >= count, "" + count + " matchers expected, " + stack.size() + " recorded.");
         List<IArgumentMatcher> result = new LinkedList<>(stack.subList(stack.size() - count, stack.size()));
@@ -98,36 +142,38 @@ public final class LastControl {
 
     private static void assertState(boolean toAssert, String message) {
         if (!toAssert) {
-            threadToArgumentMatcherStack.remove();
+            pullMatchers();
             throw new IllegalStateException(message);
         }
     }
 
     public static void reportOr(int count) {
-        List<IArgumentMatcher> stack = threadToArgumentMatcherStack.get();
+        List<IArgumentMatcher> stack = getMatchers();
         assertState(stack != null, NO_MATCHERS_FOUND);
         stack.add(new Or(popLastArgumentMatchers(count)));
     }
 
     public static Invocation getCurrentInvocation() {
-        List<Invocation> stack = threadToCurrentInvocation.get();
-        if (stack == null || stack.isEmpty()) {
+        ThreadContext context = threadToContext.get();
+        if (context == null || context.invocationCount == 0) {
             return null;
         }
-        return stack.get(stack.size()-1);
+        return context.invocations[context.invocationCount - 1];
     }
 
     public static void pushCurrentInvocation(Invocation invocation) {
-        List<Invocation> stack = threadToCurrentInvocation.get();
-        if (stack == null) {
-            stack = new ArrayList<>(2); // we will rarely have more than 1 recursion. So almost never over 2
-            threadToCurrentInvocation.set(stack);
+        ThreadContext context = getOrCreateContext();
+        if (context.invocations == null) {
+            context.invocations = new Invocation[2]; // we will rarely have more than 1 recursion. So almost never over 2
+        } else if (context.invocationCount == context.invocations.length) {
+            context.invocations = Arrays.copyOf(context.invocations, context.invocationCount * 2);
         }
-        stack.add(invocation);
+        context.invocations[context.invocationCount++] = invocation;
     }
 
     public static void popCurrentInvocation() {
-        List<Invocation> stack = threadToCurrentInvocation.get();
-        stack.remove(stack.size()-1);
+        ThreadContext context = threadToContext.get();
+        context.invocations[--context.invocationCount] = null;
+        releaseIfEmpty(context);
     }
 }
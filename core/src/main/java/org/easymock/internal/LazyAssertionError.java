@@ -0,0 +1,59 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import java.util.function.Supplier;
+
+/**
+ * {@code AssertionError} whose message is only built when it is read. Unexpected calls are sometimes expected to fail
+ * and caught by the tested code. Rendering all the expectations of a big control each time would be wasted.
+ * <p>
+ * The message is built once and kept. It is serialized as a plain {@code AssertionError}.
+ */
+public class LazyAssertionError extends AssertionError {
+
+    private static final long serialVersionUID = -4283405431427453217L;
+
+    private transient Supplier<String> messageSupplier;
+
+    private volatile String message;
+
+    public LazyAssertionError(Supplier<String> messageSupplier) {
+        this.messageSupplier = messageSupplier;
+    }
+
+    @Override
+    public String getMessage() {
+        String result = message;
+        if (result == null) {
+            synchronized (this) {
+                result = message;
+                if (result == null) {
+                    result = messageSupplier.get();
+                    message = result;
+                    messageSupplier = null;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Object writeReplace() {
+        AssertionError error = new AssertionError(getMessage());
+        error.setStackTrace(getStackTrace());
+        return error;
+    }
+}
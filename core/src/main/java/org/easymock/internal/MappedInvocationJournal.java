@@ -0,0 +1,555 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.InvocationJournal;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link InvocationJournal} written in a memory-mapped file.
+ * <p>
+ * The file starts with a header giving the positions of the oldest record (tail) and of the next one (head), and the
+ * sequences of the oldest and next records. The records follow, back to back. A record that doesn't fit before the end
+ * of the file goes at the beginning of the data, after a wrap marker, and the records it overwrites are dropped. The
+ * header is updated after each record, so the file can be read even if the JVM crashes.
+ */
+public final class MappedInvocationJournal implements InvocationJournal {
+
+    private static final int MAGIC = 0x454D4A31; // EMJ1
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int CAPACITY_OFFSET = 4;
+
+    private static final int HEAD_OFFSET = 8;
+
+    private static final int TAIL_OFFSET = 16;
+
+    private static final int FIRST_OFFSET = 24;
+
+    private static final int NEXT_OFFSET = 32;
+
+    private static final int HEADER_SIZE = 64;
+
+    /** Smallest journal accepted */
+    public static final int MIN_SIZE = 4096;
+
+    /** Length written instead of a record when the next record starts back at the beginning of the data */
+    private static final int WRAP = -1;
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private static final int MAX_STRING_LENGTH = 256;
+
+    private static final byte NULL = 0;
+
+    private static final byte INTEGER = 1;
+
+    private static final byte LONG = 2;
+
+    private static final byte SHORT = 3;
+
+    private static final byte BYTE = 4;
+
+    private static final byte CHARACTER = 5;
+
+    private static final byte BOOLEAN = 6;
+
+    private static final byte FLOAT = 7;
+
+    private static final byte DOUBLE = 8;
+
+    private static final byte STRING = 9;
+
+    private static final byte OBJECT = 10;
+
+    private final Path file;
+
+    private final MappedByteBuffer buffer;
+
+    private final int capacity;
+
+    /** Where a record is built before being copied to the file. Null when read-only */
+    private final ByteBuffer record;
+
+    /** Encoded name of each mock method */
+    private final Map<MockMethodKey, byte[]> names = new HashMap<>();
+
+    private int head;
+
+    private int tail;
+
+    private long first;
+
+    private long next;
+
+    private boolean closed;
+
+    private MappedInvocationJournal(Path file, MappedByteBuffer buffer, boolean readOnly) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.head = (int) buffer.getLong(HEAD_OFFSET);
+        this.tail = (int) buffer.getLong(TAIL_OFFSET);
+        this.first = buffer.getLong(FIRST_OFFSET);
+        this.next = buffer.getLong(NEXT_OFFSET);
+        // A record can't take more than a quarter of the data, so a few calls are always kept
+        this.record = readOnly ? null : ByteBuffer.allocate(Math.min(64 * 1024, (capacity - HEADER_SIZE) / 4));
+    }
+
+    /**
+     * Creates a journal. The file is created or replaced.
+     *
+     * @param file
+     *            the journal file
+     * @param size
+     *            size of the file in bytes
+     * @return the new journal
+     * @throws IOException
+     *             if the file can't be created
+     */
+    public static MappedInvocationJournal create(Path file, int size) throws IOException {
+        if (size < MIN_SIZE) {
+            throw new IllegalArgumentException("A journal needs at least " + MIN_SIZE + " bytes");
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(CAPACITY_OFFSET, size);
+        buffer.putLong(HEAD_OFFSET, HEADER_SIZE);
+        buffer.putLong(TAIL_OFFSET, HEADER_SIZE);
+        buffer.putLong(FIRST_OFFSET, 0);
+        buffer.putLong(NEXT_OFFSET, 0);
+        return new MappedInvocationJournal(file, buffer, false);
+    }
+
+    /**
+     * Opens, read-only, an existing journal.
+     *
+     * @param file
+     *            the journal file
+     * @return the journal
+     * @throws IOException
+     *             if the file can't be read or isn't a journal
+     */
+    public static MappedInvocationJournal open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MIN_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not an EasyMock invocation journal: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(CAPACITY_OFFSET) != buffer.capacity()) {
+            throw new IOException("Not an EasyMock invocation journal: " + file);
+        }
+        return new MappedInvocationJournal(file, buffer, true);
+    }
+
+    /**
+     * Appends an invocation.
+     *
+     * @param invocation
+     *            the invocation
+     */
+    public synchronized void record(Invocation invocation) {
+        if (closed) {
+            return;
+        }
+        ByteBuffer r = record;
+        ((Buffer) r).clear();
+        r.putInt(0); // length, set at the end
+        r.putLong(next);
+        r.putLong(System.currentTimeMillis());
+        r.putLong(Thread.currentThread().getId());
+        r.putInt(System.identityHashCode(invocation.getMock()));
+        r.putInt(invocation.getMethodId());
+        byte[] name = names.computeIfAbsent(new MockMethodKey(invocation.getMock(), invocation.getMethodId()),
+            key -> encode(invocation.getMockAndMethodName(), MAX_NAME_LENGTH));
+        r.putShort((short) name.length);
+        r.put(name);
+
+        int countPosition = r.position();
+        r.putShort((short) 0);
+        r.put((byte) 0);
+        Object[] arguments = invocation.getArguments();
+        int count = 0;
+        boolean truncated = false;
+        for (Object argument : arguments) {
+            int position = r.position();
+            if (count == Short.MAX_VALUE || !encodeArgument(argument, r)) {
+                ((Buffer) r).position(position);
+                truncated = true;
+                break;
+            }
+            count++;
+        }
+        r.putShort(countPosition, (short) count);
+        r.put(countPosition + 2, (byte) (truncated ? 1 : 0));
+        int length = r.position();
+        r.putInt(0, length);
+        ((Buffer) r).flip();
+        write(r, length);
+    }
+
+    private void write(ByteBuffer r, int length) {
+        if (head + length > capacity) {
+            // Doesn't fit before the end, start again at the beginning of the data
+            drop(head, capacity);
+            if (capacity - head >= Integer.BYTES) {
+                buffer.putInt(head, WRAP);
+            }
+            head = HEADER_SIZE;
+        }
+        drop(head, head + length);
+        if (first == next) {
+            tail = head;
+        }
+        ((Buffer) buffer).position(head);
+        buffer.put(r);
+        head += length;
+        next++;
+
+        buffer.putLong(TAIL_OFFSET, tail);
+        buffer.putLong(FIRST_OFFSET, first);
+        buffer.putLong(HEAD_OFFSET, head);
+        buffer.putLong(NEXT_OFFSET, next);
+    }
+
+    /**
+     * Drops the oldest records while they are between {@code from} and {@code to}, which are about to be overwritten.
+     */
+    private void drop(int from, int to) {
+        while (first < next && tail >= from && tail < to) {
+            if (isWrap(tail)) {
+                tail = HEADER_SIZE;
+            } else {
+                tail += buffer.getInt(tail);
+                first++;
+            }
+        }
+    }
+
+    private boolean isWrap(int position) {
+        return capacity - position < Integer.BYTES || buffer.getInt(position) == WRAP;
+    }
+
+    private static byte[] encode(String s, int maxLength) {
+        if (s.length() > maxLength) {
+            s = s.substring(0, maxLength);
+        }
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return false if there's no room left for the argument
+     */
+    private static boolean encodeArgument(Object argument, ByteBuffer r) {
+        if (argument == null) {
+            return put(r, NULL, 0) != null;
+        }
+        Class<?> c = argument.getClass();
+        if (c == Integer.class) {
+            return put(r, INTEGER, Integer.BYTES) != null && r.putInt((Integer) argument) != null;
+        }
+        if (c == Long.class) {
+            return put(r, LONG, Long.BYTES) != null && r.putLong((Long) argument) != null;
+        }
+        if (c == Short.class) {
+            return put(r, SHORT, Short.BYTES) != null && r.putShort((Short) argument) != null;
+        }
+        if (c == Byte.class) {
+            return put(r, BYTE, Byte.BYTES) != null && r.put((Byte) argument) != null;
+        }
+        if (c == Character.class) {
+            return put(r, CHARACTER, Character.BYTES) != null && r.putChar((Character) argument) != null;
+        }
+        if (c == Boolean.class) {
+            return put(r, BOOLEAN, Byte.BYTES) != null && r.put((byte) ((Boolean) argument ? 1 : 0)) != null;
+        }
+        if (c == Float.class) {
+            return put(r, FLOAT, Float.BYTES) != null && r.putFloat((Float) argument) != null;
+        }
+        if (c == Double.class) {
+            return put(r, DOUBLE, Double.BYTES) != null && r.putDouble((Double) argument) != null;
+        }
+        if (c == String.class) {
+            return putString(r, STRING, (String) argument);
+        }
+        return putString(r, OBJECT, describe(argument));
+    }
+
+    private static String describe(Object argument) {
+        Class<?> c = argument.getClass();
+        if (c.isArray()) {
+            return c.getComponentType().getName() + "[" + java.lang.reflect.Array.getLength(argument) + "]";
+        }
+        return c.getName() + "@" + Integer.toHexString(System.identityHashCode(argument));
+    }
+
+    /**
+     * Puts the tag if there's room for it and the value.
+     *
+     * @return the buffer or null if there's no room
+     */
+    private static ByteBuffer put(ByteBuffer r, byte tag, int valueSize) {
+        if (r.remaining() < 1 + valueSize) {
+            return null;
+        }
+        return r.put(tag);
+    }
+
+    private static boolean putString(ByteBuffer r, byte tag, String s) {
+        byte[] bytes = encode(s, MAX_STRING_LENGTH);
+        if (put(r, tag, Short.BYTES + bytes.length) == null) {
+            return false;
+        }
+        r.putShort((short) bytes.length);
+        r.put(bytes);
+        return true;
+    }
+
+    @Override
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized long size() {
+        return next - first;
+    }
+
+    @Override
+    public synchronized long getTotalCount() {
+        return next;
+    }
+
+    @Override
+    public synchronized Iterator<Entry> iterator() {
+        return new EntryIterator(tail, first, next);
+    }
+
+    /**
+     * Flushes the journal to the file. Calls replayed afterwards aren't journaled anymore.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (record != null) {
+            buffer.force();
+        }
+    }
+
+    private synchronized JournalEntry read(int position, long sequence) {
+        if (sequence < first) {
+            throw new ConcurrentModificationException("Entry " + sequence + " was overwritten");
+        }
+        // MappedByteBuffer.duplicate() only exists since Java 13
+        ByteBuffer b = ((ByteBuffer) buffer).duplicate();
+        ((Buffer) b).position(position + Integer.BYTES);
+        long recordSequence = b.getLong();
+        long timestamp = b.getLong();
+        long threadId = b.getLong();
+        int mockIdentity = b.getInt();
+        int methodId = b.getInt();
+        String name = getString(b);
+        int count = b.getShort();
+        boolean truncated = b.get() != 0;
+        Object[] arguments = new Object[count];
+        for (int i = 0; i < count; i++) {
+            arguments[i] = decodeArgument(b);
+        }
+        return new JournalEntry(recordSequence, timestamp, threadId, mockIdentity, methodId, name, arguments,
+            truncated);
+    }
+
+    private static Object decodeArgument(ByteBuffer b) {
+        byte tag = b.get();
+        switch (tag) {
+        case NULL:
+            return null;
+        case INTEGER:
+            return b.getInt();
+        case LONG:
+            return b.getLong();
+        case SHORT:
+            return b.getShort();
+        case BYTE:
+            return b.get();
+        case CHARACTER:
+            return b.getChar();
+        case BOOLEAN:
+            return b.get() != 0;
+        case FLOAT:
+            return b.getFloat();
+        case DOUBLE:
+            return b.getDouble();
+        case STRING:
+        case OBJECT:
+            return getString(b);
+        // ///CLOVER:OFF
+        default:
+            throw new IllegalStateException("Corrupted journal, unknown argument type " + tag);
+            // ///CLOVER:ON
+        }
+    }
+
+    private static String getString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort()];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Walks the records from the oldest, as they were when the iterator was created. Fails if the journal overwrote
+     * them meanwhile.
+     */
+    private final class EntryIterator implements Iterator<Entry> {
+
+        private int position;
+
+        private long sequence;
+
+        private final long end;
+
+        EntryIterator(int position, long sequence, long end) {
+            this.position = position;
+            this.sequence = sequence;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return sequence < end;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            synchronized (MappedInvocationJournal.this) {
+                if (sequence < first) {
+                    throw new ConcurrentModificationException("Entry " + sequence + " was overwritten");
+                }
+                if (isWrap(position)) {
+                    position = HEADER_SIZE;
+                }
+                JournalEntry entry = read(position, sequence);
+                position += buffer.getInt(position);
+                sequence++;
+                return entry;
+            }
+        }
+    }
+
+    private static final class JournalEntry implements Entry {
+
+        private final long sequence;
+
+        private final long timestamp;
+
+        private final long threadId;
+
+        private final int mockIdentity;
+
+        private final int methodId;
+
+        private final String mockAndMethodName;
+
+        private final Object[] arguments;
+
+        private final boolean truncated;
+
+        JournalEntry(long sequence, long timestamp, long threadId, int mockIdentity, int methodId,
+                String mockAndMethodName, Object[] arguments, boolean truncated) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.threadId = threadId;
+            this.mockIdentity = mockIdentity;
+            this.methodId = methodId;
+            this.mockAndMethodName = mockAndMethodName;
+            this.arguments = arguments;
+            this.truncated = truncated;
+        }
+
+        @Override
+        public long getSequence() {
+            return sequence;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public long getThreadId() {
+            return threadId;
+        }
+
+        @Override
+        public int getMockIdentity() {
+            return mockIdentity;
+        }
+
+        @Override
+        public int getMethodId() {
+            return methodId;
+        }
+
+        @Override
+        public String getMockAndMethodName() {
+            return mockAndMethodName;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return arguments.clone();
+        }
+
+        @Override
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + sequence + " " + mockAndMethodName + "(" + ArgumentToString.argumentsToString(arguments)
+                    + (truncated ? ", ..." : "") + ")";
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives a unique integer id to each method. Ids are assigned the first time a method of a class is seen and are
+ * consecutive for the methods declared by a given class. Two methods are equal if and only if they have the same id.
+ * So, once an invocation knows its method id, matching the method is an integer comparison instead of a
+ * {@code Method.equals}.
+ * <p>
+ * The ids are attached to the declaring class so they don't prevent it from being unloaded. They are only valid in
+ * the current JVM and must be recomputed after deserialization.
+ */
+public final class MethodIds {
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private static final ClassValue<ClassMethodIds> IDS = new ClassValue<ClassMethodIds>() {
+        @Override
+        protected ClassMethodIds computeValue(Class<?> type) {
+            return new ClassMethodIds(type.getDeclaredMethods());
+        }
+    };
+
+    // ///CLOVER:OFF
+    private MethodIds() {
+    }
+    // ///CLOVER:ON
+
+    /**
+     * Returns the id of a method. Proxies always pass the same {@code Method} instance, so after the first call the
+     * id is found by identity, without calling {@code Method.hashCode} or {@code Method.equals}.
+     *
+     * @param method the method
+     * @return the method id
+     */
+    public static int getId(Method method) {
+        return IDS.get(method.getDeclaringClass()).getId(method);
+    }
+
+    /**
+     * The ids of the methods declared by a class.
+     */
+    private static final class ClassMethodIds {
+
+        /** The ids of the methods as returned by {@code getDeclaredMethods} */
+        private final Map<Method, Integer> ids;
+
+        /** Maximum number of instances remembered by identity, so copies created on each call can't fill it */
+        private final int maxInstances;
+
+        /** The ids of the {@code Method} instances already seen. Copied on write */
+        private volatile Map<Method, Integer> instances = new IdentityHashMap<>();
+
+        ClassMethodIds(Method[] methods) {
+            int firstId = NEXT_ID.getAndAdd(methods.length);
+            ids = new HashMap<>(methods.length * 4 / 3 + 1);
+            for (int i = 0; i < methods.length; i++) {
+                ids.put(methods[i], firstId + i);
+            }
+            maxInstances = methods.length * 2;
+        }
+
+        int getId(Method method) {
+            Integer id = instances.get(method);
+            if (id != null) {
+                return id;
+            }
+            id = ids.get(method);
+            if (id == null) {
+                // ///CLOVER:OFF (a method is always declared by its declaring class)
+                throw new IllegalArgumentException("Method " + method + " isn't declared by "
+                        + method.getDeclaringClass());
+                // ///CLOVER:ON
+            }
+            remember(method, id);
+            return id;
+        }
+
+        private synchronized void remember(Method method, Integer id) {
+            Map<Method, Integer> current = instances;
+            if (current.size() >= maxInstances || current.containsKey(method)) {
+                return;
+            }
+            Map<Method, Integer> copy = new IdentityHashMap<>(current);
+            copy.put(method, id);
+            instances = copy;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache of the mock classes generated for a mocked class. Both the mocked class and the
+ * generated class are weakly referenced so that a class loader can still be garbage collected
+ * once the test using it is over.
+ * <p>
+ * The generated class doesn't depend on the mocked methods of a partial mock (they are filtered
+ * by the interceptor) and the mocked class identity already includes its class loader. So the
+ * mocked class alone is enough as a key.
+ */
+public final class MockClassCache {
+
+    private final Map<Class<?>, WeakReference<Class<?>>> cache = new WeakHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the mock class for {@code toMock}, generating it with {@code generator} if it isn't
+     * cached yet.
+     *
+     * @param toMock the mocked class
+     * @param generator function generating the mock class on a cache miss
+     * @return the mock class
+     */
+    public Class<?> get(Class<?> toMock, Function<Class<?>, Class<?>> generator) {
+        Class<?> mockClass = lookup(toMock);
+        if (mockClass != null) {
+            hits.incrementAndGet();
+            return mockClass;
+        }
+        misses.incrementAndGet();
+
+        // Generated outside the lock. If two threads race, the second class is just dropped
+        mockClass = generator.apply(toMock);
+
+        synchronized (cache) {
+            Class<?> existing = dereference(cache.get(toMock));
+            if (existing != null) {
+                return existing;
+            }
+            // The generated class strongly references toMock so it must be weakly held as well
+            cache.put(toMock, new WeakReference<>(mockClass));
+        }
+        return mockClass;
+    }
+
+    /**
+     * @param toMock the mocked class
+     * @return if the mock class of {@code toMock} is cached. It doesn't count as a hit
+     */
+    public boolean contains(Class<?> toMock) {
+        return lookup(toMock) != null;
+    }
+
+    private Class<?> lookup(Class<?> toMock) {
+        synchronized (cache) {
+            return dereference(cache.get(toMock));
+        }
+    }
+
+    private static Class<?> dereference(WeakReference<Class<?>> ref) {
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * @return number of times a mock class was found in the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of times a mock class had to be generated
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of mock classes currently cached
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Empties the cache and resets the counters.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.Mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates at build time the mock classes of all the classes mocked with {@link Mock} in a directory of
+ * compiled tests. They are written next to the test classes and then picked up by {@link ClassProxyFactory}
+ * instead of being generated when the test runs, if {@link org.easymock.EasyMock#ENABLE_PREGENERATED_MOCKS} is
+ * true. Meant to be called after test compilation, e.g. with the
+ * {@code exec-maven-plugin} during the {@code process-test-classes} phase:
+ * <pre>
+ * java org.easymock.internal.MockClassGenerator target/test-classes
+ * </pre>
+ * Interfaces are skipped since they are mocked with a JDK proxy. {@link org.easymock.TestSubject} fields
+ * don't need anything since they are never mocked.
+ */
+public final class MockClassGenerator {
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    // ///CLOVER:OFF
+    private MockClassGenerator() {
+    }
+    // ///CLOVER:ON
+
+    /**
+     * @param args the directory containing the compiled tests and, optionally, the output directory. By
+     *     default, the mock classes are written in the compiled tests directory
+     * @throws IOException if the compiled tests can't be read or the mock classes written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            throw new IllegalArgumentException("Usage: MockClassGenerator testClassesDirectory [outputDirectory]");
+        }
+        Path testClasses = Paths.get(args[0]);
+        Path output = args.length == 2 ? Paths.get(args[1]) : testClasses;
+        generate(testClasses, output);
+    }
+
+    /**
+     * Generates the mock classes for all classes mocked by a {@link Mock} field found in {@code testClasses}.
+     *
+     * @param testClasses directory containing the compiled tests
+     * @param output directory where the mock classes are written
+     * @return the classes for which a mock class was generated
+     * @throws IOException if the compiled tests can't be read or the mock classes written
+     */
+    public static Set<Class<?>> generate(Path testClasses, Path output) throws IOException {
+        ClassLoader parent = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { testClasses.toUri().toURL() }, parent)) {
+            Set<Class<?>> toMock = new LinkedHashSet<>();
+            for (String className : listClassNames(testClasses)) {
+                Class<?> testClass;
+                try {
+                    testClass = Class.forName(className, false, loader);
+                    collectMockedClasses(testClass, toMock);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // Can't be loaded without its full runtime classpath. Its mocks will be generated at runtime
+                }
+            }
+            for (Class<?> c : toMock) {
+                write(output, c.getName() + ClassProxyFactory.PREGENERATED_SUFFIX,
+                    ClassProxyFactory.generateMockClassBytecode(c));
+            }
+            return toMock;
+        }
+    }
+
+    private static Set<String> listClassNames(Path testClasses) throws IOException {
+        try (Stream<Path> files = Files.walk(testClasses)) {
+            return files
+                .map(path -> testClasses.relativize(path).toString())
+                .filter(path -> path.endsWith(CLASS_EXTENSION))
+                .filter(path -> !path.contains(ClassProxyFactory.PREGENERATED_SUFFIX))
+                .map(path -> path.substring(0, path.length() - CLASS_EXTENSION.length()).replace(File.separatorChar, '.'))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+    }
+
+    private static void collectMockedClasses(Class<?> testClass, Set<Class<?>> toMock) {
+        for (Field f : testClass.getDeclaredFields()) {
+            if (f.getAnnotation(Mock.class) == null) {
+                continue;
+            }
+            Class<?> type = f.getType();
+            if (type.isInterface() || type.isPrimitive() || type.isArray() || Modifier.isFinal(type.getModifiers())) {
+                continue;
+            }
+            if (ClassProxyFactory.canBePregenerated(type)) {
+                toMock.add(type);
+            }
+        }
+    }
+
+    private static void write(Path output, String className, byte[] bytecode) throws IOException {
+        Path file = output.resolve(className.replace('.', File.separatorChar) + CLASS_EXTENSION);
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytecode);
+    }
+}
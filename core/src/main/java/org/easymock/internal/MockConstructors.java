@@ -0,0 +1,91 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Calls a constructor of a mock class. The constructor is resolved once per mock class and parameter types, then
+ * kept as a {@code MethodHandle} taking the arguments as an array. Creating a partial mock with a real constructor is
+ * then a direct handle invocation instead of a constructor lookup followed by a reflective call.
+ */
+final class MockConstructors {
+
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static final ClassValue<ConcurrentMap<List<Class<?>>, MethodHandle>> HANDLES = new ClassValue<ConcurrentMap<List<Class<?>>, MethodHandle>>() {
+        @Override
+        protected ConcurrentMap<List<Class<?>>, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(4);
+        }
+    };
+
+    // ///CLOVER:OFF
+    private MockConstructors() {
+    }
+    // ///CLOVER:ON
+
+    /**
+     * Instantiates {@code mockClass} by calling its constructor having the same parameter types as
+     * {@code constructor}.
+     *
+     * @param mockClass the mock class to instantiate
+     * @param constructor the constructor of the mocked class to call
+     * @param initArgs the arguments to pass to the constructor
+     * @return the new instance
+     */
+    static Object newInstance(Class<?> mockClass, Constructor<?> constructor, Object[] initArgs) {
+        MethodHandle handle = HANDLES.get(mockClass).computeIfAbsent(Arrays.asList(constructor.getParameterTypes()),
+            parameterTypes -> findConstructor(mockClass, parameterTypes));
+        try {
+            return (Object) handle.invokeExact(initArgs);
+        } catch (Throwable e) {
+            // The handle only throws what the constructor throws
+            throw new RuntimeException(
+                "Failed to instantiate mock calling constructor: Exception in constructor", e);
+        }
+    }
+
+    private static MethodHandle findConstructor(Class<?> mockClass, List<Class<?>> parameterTypes) {
+        Constructor<?> cstr;
+        try {
+            // Get the constructor with the same params
+            cstr = mockClass.getDeclaredConstructor(parameterTypes.toArray(new Class<?>[0]));
+        } catch (NoSuchMethodException e) {
+            // Shouldn't happen, constructor is checked when ConstructorArgs is instantiated
+            // ///CLOVER:OFF
+            throw new RuntimeException("Fail to find constructor for param types", e);
+            // ///CLOVER:ON
+        }
+        cstr.setAccessible(true); // So we can call a protected constructor
+        try {
+            return MethodHandles.lookup().unreflectConstructor(cstr)
+                .asSpreader(Object[].class, parameterTypes.size())
+                .asType(SPREAD_TYPE);
+        } catch (IllegalAccessException e) {
+            // ///CLOVER:OFF
+            throw new RuntimeException("Failed to instantiate mock calling constructor", e);
+            // ///CLOVER:ON
+        }
+    }
+}
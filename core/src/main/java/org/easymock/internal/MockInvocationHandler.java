@@ -33,11 +33,25 @@ public final class MockInvocationHandler implements InvocationHandler, Serializa
     }
 
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        return invoke(proxy, method, MethodIds.getId(method), args);
+    }
+
+    /**
+     * Same as {@link #invoke(Object, Method, Object[])} but with the method id already known.
+     *
+     * @param proxy the mock
+     * @param method the invoked method
+     * @param methodId id of {@code method} as given by {@link MethodIds}
+     * @param args the arguments
+     * @return the invocation result
+     * @throws Throwable the invocation exception
+     */
+    public Object invoke(Object proxy, Method method, int methodId, Object[] args) throws Throwable {
         try {
             if (control.getState() instanceof RecordState) {
                 LastControl.reportLastControl(control);
             }
-            return control.getState().invoke(new Invocation(proxy, method, args));
+            return control.getState().invoke(new Invocation(proxy, method, methodId, args));
         } catch (RuntimeExceptionWrapper e) {
             throw e.getRuntimeException().fillInStackTrace();
         } catch (AssertionErrorWrapper e) {
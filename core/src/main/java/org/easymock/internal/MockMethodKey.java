@@ -0,0 +1,47 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+/**
+ * A mock, compared by identity, and a {@link MethodIds method id}. Used to only look at the expectations recorded for
+ * an invoked method.
+ */
+final class MockMethodKey {
+
+    private final Object mock;
+
+    private final int methodId;
+
+    MockMethodKey(Object mock, int methodId) {
+        this.mock = mock;
+        this.methodId = methodId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof MockMethodKey)) {
+            return false;
+        }
+        MockMethodKey other = (MockMethodKey) o;
+        return mock == other.mock && methodId == other.methodId;
+    }
+
+    @Override
+    public int hashCode() {
+        // Never call hashCode on the mock, it might be recorded
+        return 31 * System.identityHashCode(mock) + methodId;
+    }
+}
@@ -17,9 +17,17 @@ package org.easymock.internal;
 
 import org.easymock.EasyMock;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author OFFIS, Tammo Freese
@@ -28,11 +36,33 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
 
     private static final long serialVersionUID = 6824996227285837998L;
 
+    private static final int DEFAULT_MAX_UNEXPECTED_CALL_CANDIDATES = 100;
+
+    /** The nice mock results only depend on the return type. No need to create them on each call */
+    private static final ClassValue<Result> NICE_RESULTS = new ClassValue<Result>() {
+        @Override
+        protected Result computeValue(Class<?> type) {
+            return Result.createReturnResult(RecordState.emptyReturnValueFor(type));
+        }
+    };
+
     private final List<UnorderedBehavior> behaviorLists = new ArrayList<>();
 
     private final List<ExpectedInvocationAndResult> stubResults = new ArrayList<>();
 
-    private final List<Invocation> unexpectedCalls = new ArrayList<>();
+    /**
+     * {@code stubResults} grouped by mock and method. Rebuilt after deserialization since method ids are only valid in
+     * the current JVM.
+     */
+    private transient Map<MockMethodKey, Stubs> stubsByMethod = new HashMap<>();
+
+    /** Mocks and methods having at least one expectation. Rebuilt after deserialization */
+    private transient Set<MockMethodKey> expectedMethods = new HashSet<>();
+
+    /** A matcher or an answer might need the current invocation. Assumed after deserialization */
+    private transient boolean currentInvocationNeeded;
+
+    private final List<Invocation> unexpectedCalls = Collections.synchronizedList(new ArrayList<>());
 
     private final boolean nice;
 
@@ -40,8 +70,15 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
 
     private volatile boolean isThreadSafe;
 
+    private volatile boolean lockPerMethod;
+
     private volatile boolean shouldBeUsedInOneThread;
 
+    /** The mapped file can't be serialized, a deserialized behavior doesn't journal */
+    private transient volatile MappedInvocationJournal journal;
+
+    private transient volatile MocksControlMetrics metrics;
+
     private volatile int position = 0;
 
     private transient volatile Thread lastThread;
@@ -56,22 +93,40 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
 
     @Override
     public final void addStub(ExpectedInvocation expected, Result result) {
-        stubResults.add(new ExpectedInvocationAndResult(expected, result));
+        ExpectedInvocationAndResult stub = new ExpectedInvocationAndResult(expected, result);
+        stubResults.add(stub);
+        indexStub(stub, stubResults.size() - 1);
+        checkCurrentInvocationNeeded(expected, result);
+    }
+
+    private void indexStub(ExpectedInvocationAndResult stub, int order) {
+        ExpectedInvocation expected = stub.getExpectedInvocation();
+        stubsByMethod.computeIfAbsent(new MockMethodKey(expected.getMock(), expected.getMethodId()), k -> new Stubs())
+            .add(stub, order);
     }
 
     @Override
     public void addExpected(ExpectedInvocation expected, Result result, Range count) {
         addBehaviorListIfNecessary(expected);
         lastBehaviorList().addExpected(expected, result, count);
+        expectedMethods.add(new MockMethodKey(expected.getMock(), expected.getMethodId()));
+        checkCurrentInvocationNeeded(expected, result);
     }
 
-    private Result getStubResult(Invocation actual) {
-        for (ExpectedInvocationAndResult each : stubResults) {
-            if (each.getExpectedInvocation().matches(actual)) {
-                return each.getResult();
-            }
+    private void checkCurrentInvocationNeeded(ExpectedInvocation expected, Result result) {
+        if (!result.isConstant() || !expected.isSideEffectFree()) {
+            currentInvocationNeeded = true;
         }
-        return null;
+    }
+
+    @Override
+    public boolean isCurrentInvocationNeeded() {
+        return currentInvocationNeeded;
+    }
+
+    private Result getStubResult(Invocation actual) {
+        Stubs stubs = stubsByMethod.get(new MockMethodKey(actual.getMock(), actual.getMethodId()));
+        return stubs == null ? null : stubs.getResult(actual);
     }
 
     private void addBehaviorListIfNecessary(ExpectedInvocation expected) {
@@ -86,29 +141,45 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
 
     @Override
     public final Result addActual(Invocation actual) {
+        MocksControlMetrics callMetrics = metrics;
+        if (callMetrics == null) {
+            return match(actual, null);
+        }
+        long start = System.nanoTime();
+        try {
+            return match(actual, callMetrics);
+        } finally {
+            callMetrics.matched(actual, System.nanoTime() - start);
+        }
+    }
+
+    private Result match(Invocation actual, MocksControlMetrics callMetrics) {
         int initialPosition = position;
 
-        while (position < behaviorLists.size()) {
-            Result result = behaviorLists.get(position).addActual(actual);
+        // The cursor is only moved when an expectation matches. With a lock per method, other threads can be reading it
+        int endPosition = initialPosition;
+        while (endPosition < behaviorLists.size()) {
+            Result result = behaviorLists.get(endPosition).addActual(actual);
             if (result != null) {
+                position = endPosition;
                 return result;
             }
-            if (!behaviorLists.get(position).verify()) {
+            // The last list is where the search stops anyway. Verifying it would read the call counts of all methods
+            if (endPosition == behaviorLists.size() - 1 || !behaviorLists.get(endPosition).verify()) {
                 break;
             }
-            position++;
+            endPosition++;
         }
+
+        // Do not move the cursor in case of stub, nice or error
         Result stubOrNice = getStubResult(actual);
+        if (stubOrNice != null && callMetrics != null) {
+            callMetrics.stubHit(actual);
+        }
         if (stubOrNice == null && nice) {
-            stubOrNice = Result.createReturnResult(RecordState.emptyReturnValueFor(actual.getMethod()
-                    .getReturnType()));
+            stubOrNice = createNiceResult(actual);
         }
 
-        int endPosition = position;
-
-        // Do not move the cursor in case of stub, nice or error
-        position = initialPosition;
-
         if (stubOrNice != null) {
             actual.validateCaptures();
             actual.clearCaptures();
@@ -120,17 +191,16 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
             endPosition--;
         }
 
-        // Loop all around the behaviors left to generate the message
-        StringBuilder errorMessage = new StringBuilder(70 * (endPosition - initialPosition + 1)); // rough approximation of the length
-        errorMessage.append("\n  Unexpected method call ").append(actual.toString());
+        // With a lock per method, only the results of the invoked method are guarded by the lock held
+        boolean invokedMethodOnly = isLockPerMethod();
 
+        // Collect the behaviors left. The matches were already computed, only the message is built lazily
         List<ErrorMessage> messages = new ArrayList<>();
 
         int matches = 0;
 
-        // First find how many match we have
         for (int i = initialPosition; i <= endPosition; i++) {
-            List<ErrorMessage> thisListMessages = behaviorLists.get(i).getMessages(actual);
+            List<ErrorMessage> thisListMessages = behaviorLists.get(i).getMessages(actual, invokedMethodOnly);
             messages.addAll(thisListMessages);
             for (ErrorMessage m : thisListMessages) {
                 if (m.isMatching()) {
@@ -139,21 +209,94 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
             }
         }
 
+        // Keep the unexpected invocation to have a look in the verify
+        unexpectedCalls.add(actual);
+        if (callMetrics != null) {
+            callMetrics.unexpectedCall(actual);
+        }
+
+        // And finally throw the error
+        int matchCount = matches;
+        throw new AssertionErrorWrapper(new LazyAssertionError(() -> unexpectedCallMessage(actual, messages, matchCount)));
+    }
+
+    private static String unexpectedCallMessage(Invocation actual, List<ErrorMessage> messages, int matches) {
+        int limit = getMaxUnexpectedCallCandidates();
+        int listed = Math.min(limit, messages.size());
+
+        StringBuilder errorMessage = new StringBuilder(70 * (listed + 1)); // rough approximation of the length
+        errorMessage.append("\n  Unexpected method call ").append(actual.toString());
+
         if (matches > 1) {
             errorMessage.append(". Possible matches are marked with (+1):");
         } else {
             errorMessage.append(":");
         }
 
-        for (ErrorMessage m : messages) {
-            m.appendTo(errorMessage, matches);
+        for (int i = 0; i < listed; i++) {
+            messages.get(i).appendTo(errorMessage, matches);
+        }
+        if (listed < messages.size()) {
+            errorMessage.append("\n    ... ").append(messages.size() - listed).append(" more");
         }
 
-        // Keep the unexpected invocation to have a look in the verify
-        unexpectedCalls.add(actual);
+        return errorMessage.toString();
+    }
 
-        // And finally throw the error
-        throw new AssertionErrorWrapper(new AssertionError(errorMessage));
+    private static int getMaxUnexpectedCallCandidates() {
+        String value = EasyMockProperties.getInstance().getProperty(EasyMock.MAX_UNEXPECTED_CALL_CANDIDATES);
+        if (value == null) {
+            return DEFAULT_MAX_UNEXPECTED_CALL_CANDIDATES;
+        }
+        // Failing here would hide the assertion error. So a wrong value is ignored
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_MAX_UNEXPECTED_CALL_CANDIDATES;
+        }
+    }
+
+    @Override
+    public Result getStatelessResult(Invocation actual) {
+        MocksControlMetrics callMetrics = metrics;
+        if (callMetrics == null) {
+            return getStatelessResult(actual, null);
+        }
+        long start = System.nanoTime();
+        try {
+            return getStatelessResult(actual, callMetrics);
+        } finally {
+            callMetrics.matched(actual, System.nanoTime() - start);
+        }
+    }
+
+    private Result getStatelessResult(Invocation actual, MocksControlMetrics callMetrics) {
+        MockMethodKey key = new MockMethodKey(actual.getMock(), actual.getMethodId());
+        // Expectations count their calls
+        if (expectedMethods.contains(key)) {
+            return null;
+        }
+        Stubs stubs = stubsByMethod.get(key);
+        Result result = null;
+        if (stubs != null) {
+            // Captures, answers and delegates can change things
+            if (!stubs.isConstant()) {
+                return null;
+            }
+            result = stubs.getResult(actual);
+            if (result != null && callMetrics != null) {
+                callMetrics.stubHit(actual);
+            }
+        }
+        if (result == null && nice) {
+            result = createNiceResult(actual);
+        }
+        // A null result is an unexpected call. It needs to be recorded
+        return result;
+    }
+
+    private static Result createNiceResult(Invocation actual) {
+        return NICE_RESULTS.get(actual.getMethod().getReturnType());
     }
 
     @Override
@@ -201,6 +344,21 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
 
     @Override
     public void verify() {
+        Object event = JfrEvent.VERIFY.begin();
+        if (event == null) {
+            verifyAll();
+            return;
+        }
+        boolean passed = false;
+        try {
+            verifyAll();
+            passed = true;
+        } finally {
+            JfrEvent.VERIFY.commit(event, passed);
+        }
+    }
+
+    private void verifyAll() {
         AssertionErrorWrapper firstError = null;
         try {
             verifyRecording();
@@ -230,16 +388,48 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
         this.isThreadSafe = isThreadSafe;
     }
 
+    @Override
+    public void lockPerMethod(boolean lockPerMethod) {
+        this.lockPerMethod = lockPerMethod;
+    }
+
     @Override
     public void shouldBeUsedInOneThread(boolean shouldBeUsedInOneThread) {
         this.shouldBeUsedInOneThread = shouldBeUsedInOneThread;
     }
 
+    @Override
+    public void journal(MappedInvocationJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public MappedInvocationJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void collectMetrics(MocksControlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public MocksControlMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public boolean isThreadSafe() {
         return this.isThreadSafe;
     }
 
+    @Override
+    public boolean isLockPerMethod() {
+        // A single unordered behavior list has no state shared between methods. More lists means a sequence
+        return lockPerMethod && (behaviorLists.isEmpty()
+            || behaviorLists.size() == 1 && !behaviorLists.get(0).isCheckOrder());
+    }
+
     @Override
     public void checkThreadSafety() {
         if (!shouldBeUsedInOneThread) {
@@ -253,4 +443,92 @@ public class MocksBehavior implements IMocksBehavior, Serializable {
                             + " Current: " + Thread.currentThread()));
         }
     }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        stubsByMethod = new HashMap<>();
+        for (int i = 0; i < stubResults.size(); i++) {
+            indexStub(stubResults.get(i), i);
+        }
+        expectedMethods = new HashSet<>();
+        for (UnorderedBehavior behaviorList : behaviorLists) {
+            expectedMethods.addAll(behaviorList.getExpectedMethods());
+        }
+        currentInvocationNeeded = true;
+    }
+
+    /**
+     * The stubs of a mock method. Stubs recorded with raw values of a type with a reliable {@code hashCode} are found
+     * by a hash lookup on the arguments. The others are tried in order. The first registered stub matching still wins.
+     */
+    private static final class Stubs {
+
+        /** Types for which {@code equals} is consistent with {@code hashCode} and only true for the same type */
+        private static final Set<Class<?>> HASHABLE_TYPES = new HashSet<>(Arrays.asList(String.class,
+            Boolean.class, Byte.class, Short.class, Character.class, Integer.class, Long.class, Float.class,
+            Double.class, Class.class));
+
+        private final List<Stub> matched = new ArrayList<>();
+
+        private final Map<List<Object>, Stub> hashed = new HashMap<>();
+
+        /** All stubs return or throw a constant and their matching has no side effect */
+        private boolean constant = true;
+
+        void add(ExpectedInvocationAndResult entry, int order) {
+            Stub stub = new Stub(entry, order);
+            ExpectedInvocation expected = entry.getExpectedInvocation();
+            constant &= entry.getResult().isConstant() && expected.isSideEffectFree();
+            if (expected.hasRawArguments() && isHashable(expected.getArguments())) {
+                // Only the first stub counts
+                hashed.putIfAbsent(Arrays.asList(expected.getArguments()), stub);
+            } else {
+                matched.add(stub);
+            }
+        }
+
+        boolean isConstant() {
+            return constant;
+        }
+
+        Result getResult(Invocation actual) {
+            Stub hashedStub = null;
+            if (!hashed.isEmpty() && isHashable(actual.getArguments())) {
+                hashedStub = hashed.get(Arrays.asList(actual.getArguments()));
+            }
+            int hashedOrder = hashedStub == null ? Integer.MAX_VALUE : hashedStub.order;
+            // A stub with matchers registered before still has priority
+            for (Stub stub : matched) {
+                if (stub.order > hashedOrder) {
+                    break;
+                }
+                if (stub.entry.getExpectedInvocation().matches(actual)) {
+                    return stub.entry.getResult();
+                }
+            }
+            return hashedStub == null ? null : hashedStub.entry.getResult();
+        }
+
+        private static boolean isHashable(Object[] arguments) {
+            for (Object argument : arguments) {
+                if (argument == null || !(HASHABLE_TYPES.contains(argument.getClass()) || argument instanceof Enum)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Stub {
+
+        private final ExpectedInvocationAndResult entry;
+
+        /** Registration order of the stub on the control */
+        private final int order;
+
+        Stub(ExpectedInvocationAndResult entry, int order) {
+            this.entry = entry;
+            this.order = order;
+        }
+    }
 }
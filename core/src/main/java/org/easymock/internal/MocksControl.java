@@ -21,6 +21,7 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.nio.file.Path;
 
 /**
  * @author OFFIS, Tammo Freese
@@ -93,6 +94,8 @@ public class MocksControl implements IMocksControl, IExpectationSetters<Object>,
             IProxyFactory proxyFactory = toMock.isInterface()
                     ? interfaceProxyFactory
                     : getClassProxyFactory();
+            Object event = JfrEvent.CREATE_MOCK.begin();
+            boolean cacheHit = event != null && proxyFactory.isProxyClassCached(toMock);
             try {
                 @SuppressWarnings("unchecked")
                 R mock = (R) proxyFactory.createProxy(toMock, new ObjectMethodsFilter(toMock,
@@ -104,6 +107,10 @@ public class MocksControl implements IMocksControl, IExpectationSetters<Object>,
                         "Class mocking requires to have Objenesis library in the classpath", e));
                 }
                 throw e;
+            } finally {
+                if (event != null) {
+                    JfrEvent.CREATE_MOCK.commit(event, toMock.getName(), toMock.isInterface(), cacheHit);
+                }
             }
 
         } catch (RuntimeExceptionWrapper e) {
@@ -136,6 +143,12 @@ public class MocksControl implements IMocksControl, IExpectationSetters<Object>,
         }
         // ///CLOVER:ON
 
+        String hiddenClassMocking = EasyMockProperties.getInstance().getProperty(
+                EasyMock.ENABLE_HIDDEN_CLASS_MOCKING);
+        if (Boolean.valueOf(hiddenClassMocking) && HiddenClassProxyFactory.isSupported()) {
+            return classProxyFactory = new HiddenClassProxyFactory();
+        }
+
         return classProxyFactory = new ClassProxyFactory();
     }
 
@@ -175,8 +188,14 @@ public class MocksControl implements IMocksControl, IExpectationSetters<Object>,
 
     @Override
     public void reset() {
+        IMocksBehavior previous = behavior;
         behavior = new MocksBehavior(type == org.easymock.MockType.NICE);
         behavior.checkOrder(type == org.easymock.MockType.STRICT);
+        if (previous != null) {
+            // The journal and the metrics belong to the control, not to the expectations
+            behavior.journal(previous.getJournal());
+            behavior.collectMetrics(previous.getMetrics());
+        }
         state = new RecordState(behavior);
         LastControl.reportLastControl(null);
     }
@@ -261,6 +280,33 @@ public class MocksControl implements IMocksControl, IExpectationSetters<Object>,
         }
     }
 
+    @Override
+    public void lockPerMethod(boolean lockPerMethod) {
+        try {
+            state.lockPerMethod(lockPerMethod);
+        } catch (RuntimeExceptionWrapper e) {
+            throw (RuntimeException) e.getRuntimeException().fillInStackTrace();
+        }
+    }
+
+    @Override
+    public InvocationJournal journal(Path file, int size) {
+        try {
+            return state.journal(file, size);
+        } catch (RuntimeExceptionWrapper e) {
+            throw (RuntimeException) e.getRuntimeException().fillInStackTrace();
+        }
+    }
+
+    @Override
+    public ControlMetrics collectMetrics() {
+        try {
+            return state.collectMetrics();
+        } catch (RuntimeExceptionWrapper e) {
+            throw (RuntimeException) e.getRuntimeException().fillInStackTrace();
+        }
+    }
+
     @Override
     public void checkIsUsedInOneThread(boolean shouldBeUsedInOneThread) {
         try {
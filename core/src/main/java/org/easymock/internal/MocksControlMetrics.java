@@ -0,0 +1,279 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.ControlMetrics;
+import org.easymock.InvocationMetrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ControlMetrics} kept for each mocked method. Replaying threads only increment adders, the totals are
+ * computed when read.
+ */
+public final class MocksControlMetrics implements ControlMetrics, ControlMetricsMXBean {
+
+    private final ConcurrentMap<MockMethodKey, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    private ObjectName objectName;
+
+    private MethodMetrics getMethodMetrics(Invocation invocation) {
+        MockMethodKey key = new MockMethodKey(invocation.getMock(), invocation.getMethodId());
+        MethodMetrics metrics = methods.get(key);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(key, k -> new MethodMetrics(methodName(invocation)));
+        }
+        return metrics;
+    }
+
+    private static String methodName(Invocation invocation) {
+        StringBuilder name = new StringBuilder(invocation.getMockAndMethodName()).append('(');
+        Class<?>[] parameterTypes = invocation.getMethod().getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                name.append(", ");
+            }
+            name.append(parameterTypes[i].getSimpleName());
+        }
+        return name.append(')').toString();
+    }
+
+    /**
+     * A call is being replayed.
+     *
+     * @param invocation
+     *            the call
+     */
+    public void called(Invocation invocation) {
+        getMethodMetrics(invocation).calls.increment();
+        invocation.countMatches();
+    }
+
+    /**
+     * The expectations and stubs of a call were looked at.
+     *
+     * @param invocation
+     *            the call
+     * @param nanos
+     *            time it took
+     */
+    public void matched(Invocation invocation, long nanos) {
+        MethodMetrics metrics = getMethodMetrics(invocation);
+        metrics.matchingNanos.add(nanos);
+        metrics.matches.add(invocation.takeMatchCount());
+    }
+
+    /**
+     * A call was answered by a stub.
+     *
+     * @param invocation
+     *            the call
+     */
+    public void stubHit(Invocation invocation) {
+        getMethodMetrics(invocation).stubHits.increment();
+    }
+
+    /**
+     * A call was not expected.
+     *
+     * @param invocation
+     *            the call
+     */
+    public void unexpectedCall(Invocation invocation) {
+        getMethodMetrics(invocation).unexpectedCalls.increment();
+    }
+
+    /**
+     * A call was answered.
+     *
+     * @param invocation
+     *            the call
+     * @param nanos
+     *            time the answer took
+     */
+    public void answered(Invocation invocation, long nanos) {
+        getMethodMetrics(invocation).answerNanos.add(nanos);
+    }
+
+    private Snapshot total() {
+        Snapshot total = new Snapshot();
+        for (MethodMetrics metrics : methods.values()) {
+            total.add(metrics);
+        }
+        return total;
+    }
+
+    @Override
+    public long getCallCount() {
+        return total().callCount;
+    }
+
+    @Override
+    public long getStubHitCount() {
+        return total().stubHitCount;
+    }
+
+    @Override
+    public long getUnexpectedCallCount() {
+        return total().unexpectedCallCount;
+    }
+
+    @Override
+    public long getMatchCount() {
+        return total().matchCount;
+    }
+
+    @Override
+    public long getMatchingNanos() {
+        return total().matchingNanos;
+    }
+
+    @Override
+    public long getAnswerNanos() {
+        return total().answerNanos;
+    }
+
+    @Override
+    public Map<String, InvocationMetrics> getMethods() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        for (MethodMetrics metrics : methods.values()) {
+            snapshots.computeIfAbsent(metrics.name, name -> new Snapshot()).add(metrics);
+        }
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    @Override
+    public synchronized ObjectName registerMBean(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName newName = new ObjectName("org.easymock:type=ControlMetrics,name=" + ObjectName.quote(name));
+            unregisterMBean();
+            server.registerMBean(this, newName);
+            objectName = newName;
+            return newName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Can't register the metrics as " + name, e);
+        }
+    }
+
+    @Override
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // Already removed from the server by someone else, nothing left to do
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return total().toString();
+    }
+
+    private static final class MethodMetrics {
+
+        private final String name;
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder stubHits = new LongAdder();
+
+        private final LongAdder unexpectedCalls = new LongAdder();
+
+        private final LongAdder matches = new LongAdder();
+
+        private final LongAdder matchingNanos = new LongAdder();
+
+        private final LongAdder answerNanos = new LongAdder();
+
+        MethodMetrics(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Snapshot implements InvocationMetrics {
+
+        private long callCount;
+
+        private long stubHitCount;
+
+        private long unexpectedCallCount;
+
+        private long matchCount;
+
+        private long matchingNanos;
+
+        private long answerNanos;
+
+        void add(MethodMetrics metrics) {
+            callCount += metrics.calls.sum();
+            stubHitCount += metrics.stubHits.sum();
+            unexpectedCallCount += metrics.unexpectedCalls.sum();
+            matchCount += metrics.matches.sum();
+            matchingNanos += metrics.matchingNanos.sum();
+            answerNanos += metrics.answerNanos.sum();
+        }
+
+        @Override
+        public long getCallCount() {
+            return callCount;
+        }
+
+        @Override
+        public long getStubHitCount() {
+            return stubHitCount;
+        }
+
+        @Override
+        public long getUnexpectedCallCount() {
+            return unexpectedCallCount;
+        }
+
+        @Override
+        public long getMatchCount() {
+            return matchCount;
+        }
+
+        @Override
+        public long getMatchingNanos() {
+            return matchingNanos;
+        }
+
+        @Override
+        public long getAnswerNanos() {
+            return answerNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "calls=" + callCount + ", stubHits=" + stubHitCount + ", unexpectedCalls=" + unexpectedCallCount
+                    + ", matches=" + matchCount + ", matchingNanos=" + matchingNanos + ", answerNanos=" + answerNanos;
+        }
+    }
+}
@@ -31,13 +31,33 @@ public class ObjectMethodsFilter implements InvocationHandler, Serializable {
 
     private static final ReflectionUtils.Predicate<Method> NOT_PRIVATE = method -> !Modifier.isPrivate(method.getModifiers());
 
-    private transient Method equalsMethod;
-
-    private transient Method hashCodeMethod;
+    private static final ObjectMethods INTERFACE_OBJECT_METHODS = new ObjectMethods(ReflectionUtils.OBJECT_EQUALS,
+        ReflectionUtils.OBJECT_HASHCODE, ReflectionUtils.OBJECT_TOSTRING, ReflectionUtils.OBJECT_FINALIZE);
+
+    /** The Object methods are looked up once per mocked class */
+    private static final ClassValue<ObjectMethods> OBJECT_METHODS = new ClassValue<ObjectMethods>() {
+        @Override
+        protected ObjectMethods computeValue(Class<?> toMock) {
+            if (toMock.isInterface()) {
+                return INTERFACE_OBJECT_METHODS;
+            }
+            try {
+                return new ObjectMethods(extractMethod(toMock, "equals", Object.class),
+                    extractMethod(toMock, "hashCode", (Class[]) null),
+                    extractMethod(toMock, "toString", (Class[]) null),
+                    ReflectionUtils.findMethod(toMock, "finalize", NOT_PRIVATE, (Class[]) null));
+            } catch (NoSuchMethodException e) {
+                // ///CLOVER:OFF
+                throw new RuntimeException("An Object method could not be found!", e);
+                // ///CLOVER:ON
+            }
+        }
+    };
 
-    private transient Method toStringMethod;
+    private transient ObjectMethods objectMethods;
 
-    private transient Method finalizeMethod;
+    /** Lazily computed. The mock name and class never change so neither does its toString */
+    private transient volatile String toStringValue;
 
     private final MockInvocationHandler delegate;
 
@@ -49,24 +69,7 @@ public class ObjectMethodsFilter implements InvocationHandler, Serializable {
 
         }
 
-        if (toMock.isInterface()) {
-            equalsMethod = ReflectionUtils.OBJECT_EQUALS;
-            hashCodeMethod = ReflectionUtils.OBJECT_HASHCODE;
-            toStringMethod = ReflectionUtils.OBJECT_TOSTRING;
-            finalizeMethod = ReflectionUtils.OBJECT_FINALIZE;
-        } else {
-            try {
-                equalsMethod = extractMethod(toMock, "equals", Object.class);
-                hashCodeMethod = extractMethod(toMock, "hashCode", (Class[]) null);
-                toStringMethod = extractMethod(toMock, "toString", (Class[]) null);
-                finalizeMethod = ReflectionUtils.findMethod(toMock, "finalize", NOT_PRIVATE, (Class[]) null);
-            } catch (NoSuchMethodException e) {
-                // ///CLOVER:OFF
-                throw new RuntimeException("An Object method could not be found!", e);
-                // ///CLOVER:ON
-            }
-        }
-
+        this.objectMethods = OBJECT_METHODS.get(toMock);
         this.delegate = delegate;
         this.name = name;
     }
@@ -86,19 +89,39 @@ public class ObjectMethodsFilter implements InvocationHandler, Serializable {
     }
 
     public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        if (equalsMethod.equals(method)) {
-            return proxy == args[0];
-        }
-        if (hashCodeMethod.equals(method)) {
-            return System.identityHashCode(proxy);
-        }
-        if (toStringMethod.equals(method)) {
-            return mockToString(proxy);
-        }
-        if (finalizeMethod.equals(method)) {
-            return null; // ignore finalize completely to prevent any unexpected side-effect from the GC
+        return invoke(proxy, method, MethodIds.getId(method), args);
+    }
+
+    /**
+     * Same as {@link #invoke(Object, Method, Object[])} but with the method id already known.
+     *
+     * @param proxy the mock
+     * @param method the invoked method
+     * @param methodId id of {@code method} as given by {@link MethodIds}
+     * @param args the arguments
+     * @return the invocation result
+     * @throws Throwable the invocation exception
+     */
+    public final Object invoke(Object proxy, Method method, int methodId, Object[] args) throws Throwable {
+        ObjectMethods objectMethods = this.objectMethods;
+        if (objectMethods.isObjectMethod(methodId)) {
+            if (methodId == objectMethods.equalsId) {
+                return proxy == args[0];
+            }
+            if (methodId == objectMethods.hashCodeId) {
+                // The identity hash code is computed once and then kept in the object header
+                return System.identityHashCode(proxy);
+            }
+            if (methodId == objectMethods.toStringId) {
+                String result = toStringValue;
+                if (result == null) {
+                    toStringValue = result = mockToString(proxy);
+                }
+                return result;
+            }
+            return null; // finalize: ignore completely to prevent any unexpected side-effect from the GC
         }
-        return delegate.invoke(proxy, method, args);
+        return delegate.invoke(proxy, method, methodId, args);
     }
 
     private String mockToString(Object proxy) {
@@ -113,10 +136,11 @@ public class ObjectMethodsFilter implements InvocationHandler, Serializable {
             ClassNotFoundException {
         stream.defaultReadObject();
         try {
-            toStringMethod = ((MethodSerializationWrapper) stream.readObject()).getMethod();
-            equalsMethod = ((MethodSerializationWrapper) stream.readObject()).getMethod();
-            hashCodeMethod = ((MethodSerializationWrapper) stream.readObject()).getMethod();
-            finalizeMethod = ((MethodSerializationWrapper) stream.readObject()).getMethod();
+            Method toStringMethod = ((MethodSerializationWrapper) stream.readObject()).getMethod();
+            Method equalsMethod = ((MethodSerializationWrapper) stream.readObject()).getMethod();
+            Method hashCodeMethod = ((MethodSerializationWrapper) stream.readObject()).getMethod();
+            Method finalizeMethod = ((MethodSerializationWrapper) stream.readObject()).getMethod();
+            objectMethods = new ObjectMethods(equalsMethod, hashCodeMethod, toStringMethod, finalizeMethod);
         } catch (NoSuchMethodException e) {
             // ///CLOVER:OFF
             throw new IOException(e.toString());
@@ -126,9 +150,47 @@ public class ObjectMethodsFilter implements InvocationHandler, Serializable {
 
     private void writeObject(java.io.ObjectOutputStream stream) throws IOException {
         stream.defaultWriteObject();
-        stream.writeObject(new MethodSerializationWrapper(toStringMethod));
-        stream.writeObject(new MethodSerializationWrapper(equalsMethod));
-        stream.writeObject(new MethodSerializationWrapper(hashCodeMethod));
-        stream.writeObject(new MethodSerializationWrapper(finalizeMethod));
+        stream.writeObject(new MethodSerializationWrapper(objectMethods.toStringMethod));
+        stream.writeObject(new MethodSerializationWrapper(objectMethods.equalsMethod));
+        stream.writeObject(new MethodSerializationWrapper(objectMethods.hashCodeMethod));
+        stream.writeObject(new MethodSerializationWrapper(objectMethods.finalizeMethod));
+    }
+
+    /**
+     * The Object methods of a mocked class and their {@link MethodIds} id.
+     */
+    private static final class ObjectMethods {
+
+        private final Method equalsMethod;
+
+        private final Method hashCodeMethod;
+
+        private final Method toStringMethod;
+
+        private final Method finalizeMethod;
+
+        private final int equalsId;
+
+        private final int hashCodeId;
+
+        private final int toStringId;
+
+        private final int finalizeId;
+
+        ObjectMethods(Method equalsMethod, Method hashCodeMethod, Method toStringMethod, Method finalizeMethod) {
+            this.equalsMethod = equalsMethod;
+            this.hashCodeMethod = hashCodeMethod;
+            this.toStringMethod = toStringMethod;
+            this.finalizeMethod = finalizeMethod;
+            this.equalsId = MethodIds.getId(equalsMethod);
+            this.hashCodeId = MethodIds.getId(hashCodeMethod);
+            this.toStringId = MethodIds.getId(toStringMethod);
+            this.finalizeId = MethodIds.getId(finalizeMethod);
+        }
+
+        boolean isObjectMethod(int methodId) {
+            // Non-short-circuit operators to have a single branch for the common case of a normal method
+            return methodId == equalsId | methodId == hashCodeId | methodId == toStringId | methodId == finalizeId;
+        }
     }
 }
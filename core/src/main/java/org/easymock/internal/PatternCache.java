@@ -0,0 +1,168 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.EasyMock;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of the compiled patterns used by the {@code matches} and {@code find} matchers. The same regular expressions
+ * are usually recorded again and again, e.g. in parameterized tests, so there is no need to compile them each time.
+ * <p>
+ * Getting a cached pattern doesn't lock. When the cache is full, a pattern not used since the previous eviction is
+ * evicted (second chance algorithm, an approximation of least recently used). The maximum size is given by
+ * {@link EasyMock#PATTERN_CACHE_SIZE}, read when the cache is created.
+ */
+public final class PatternCache {
+
+    private static final int DEFAULT_SIZE = 256;
+
+    private static final PatternCache INSTANCE = new PatternCache();
+
+    private static final class Entry {
+        private final Pattern pattern;
+
+        /** Set when used, cleared when the entry is spared by an eviction */
+        private volatile boolean used;
+
+        Entry(Pattern pattern) {
+            this.pattern = pattern;
+        }
+    }
+
+    private final Map<String, Entry> patterns = new ConcurrentHashMap<>();
+
+    private final int maxSize = getMaxSize();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    PatternCache() {
+    }
+
+    public static PatternCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the compiled pattern for a regular expression. It is compiled if not in the cache yet.
+     *
+     * @param regex the regular expression
+     * @return the compiled pattern
+     */
+    public Pattern getPattern(String regex) {
+        Entry entry = patterns.get(regex);
+        if (entry != null) {
+            hits.increment();
+            // Only written when needed, so the entries used all the time stay shared by the CPU caches
+            if (!entry.used) {
+                entry.used = true;
+            }
+            return entry.pattern;
+        }
+        misses.increment();
+        Pattern pattern = Pattern.compile(regex);
+        if (maxSize > 0) {
+            patterns.put(regex, new Entry(pattern));
+            evict(regex);
+        }
+        return pattern;
+    }
+
+    private void evict(String added) {
+        // Only happens on a miss with a full cache, so the scan doesn't slow down the hits
+        while (patterns.size() > maxSize) {
+            String evicted = null;
+            // Spare the used entries once. If they were all used, the first one is evicted on the second pass
+            for (int pass = 0; pass < 2 && evicted == null; pass++) {
+                for (Map.Entry<String, Entry> e : patterns.entrySet()) {
+                    if (e.getKey().equals(added)) {
+                        continue;
+                    }
+                    Entry entry = e.getValue();
+                    if (!entry.used) {
+                        evicted = e.getKey();
+                        break;
+                    }
+                    entry.used = false;
+                }
+            }
+            if (evicted == null) {
+                // ///CLOVER:OFF (emptied by another thread)
+                return;
+                // ///CLOVER:ON
+            }
+            patterns.remove(evicted);
+        }
+    }
+
+    private static int getMaxSize() {
+        String value = EasyMockProperties.getInstance().getProperty(EasyMock.PATTERN_CACHE_SIZE);
+        if (value == null) {
+            return DEFAULT_SIZE;
+        }
+        // Failing here would make a matcher fail during the replay. So a wrong value is ignored
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_SIZE;
+        }
+    }
+
+    /**
+     * @return the number of patterns currently cached
+     */
+    public int size() {
+        return patterns.size();
+    }
+
+    /**
+     * @return how many times a pattern was found in the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how many times a pattern had to be compiled
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the ratio of patterns found in the cache, 0 if no pattern was asked for yet
+     */
+    public double getHitRate() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Empty the cache and reset the counters.
+     */
+    public void clear() {
+        patterns.clear();
+        hits.reset();
+        misses.reset();
+    }
+}
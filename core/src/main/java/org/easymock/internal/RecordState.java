@@ -15,10 +15,15 @@
  */
 package org.easymock.internal;
 
+import org.easymock.ControlMetrics;
 import org.easymock.IAnswer;
 import org.easymock.IArgumentMatcher;
+import org.easymock.InvocationJournal;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -345,6 +350,37 @@ public class RecordState implements IMocksControlState, Serializable {
         behavior.makeThreadSafe(threadSafe);
     }
 
+    @Override
+    public void lockPerMethod(boolean lockPerMethod) {
+        behavior.lockPerMethod(lockPerMethod);
+    }
+
+    @Override
+    public InvocationJournal journal(Path file, int size) {
+        MappedInvocationJournal journal;
+        try {
+            journal = MappedInvocationJournal.create(file, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MappedInvocationJournal previous = behavior.getJournal();
+        behavior.journal(journal);
+        if (previous != null) {
+            previous.close();
+        }
+        return journal;
+    }
+
+    @Override
+    public ControlMetrics collectMetrics() {
+        MocksControlMetrics metrics = behavior.getMetrics();
+        if (metrics == null) {
+            metrics = new MocksControlMetrics();
+            behavior.collectMetrics(metrics);
+        }
+        return metrics;
+    }
+
     @Override
     public void checkIsUsedInOneThread(boolean shouldBeUsedInOneThread) {
         behavior.shouldBeUsedInOneThread(shouldBeUsedInOneThread);
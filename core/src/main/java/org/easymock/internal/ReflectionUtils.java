@@ -18,9 +18,12 @@ package org.easymock.internal;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Henri Tremblay
@@ -46,6 +49,14 @@ public final class ReflectionUtils {
         primitiveToWrapperType.put(double.class, Double.class);
     }
 
+    /** Constructors found by {@link #getConstructor(Class, Object...)} for each class and argument classes */
+    private static final ClassValue<Map<List<Class<?>>, Constructor<?>>> CONSTRUCTORS = new ClassValue<Map<List<Class<?>>, Constructor<?>>>() {
+        @Override
+        protected Map<List<Class<?>>, Constructor<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(4);
+        }
+    };
+
     public static final Method OBJECT_EQUALS = getDeclaredMethod(Object.class, "equals",
         Object.class);
 
@@ -190,6 +201,23 @@ public final class ReflectionUtils {
     @SuppressWarnings("unchecked")
     public static <T> Constructor<T> getConstructor(Class<T> clazz, Object... objs)
             throws NoSuchMethodException {
+        // The matching only depends on the classes of the arguments, so the result can be cached on them
+        List<Class<?>> argTypes = new ArrayList<>(objs.length);
+        for (Object obj : objs) {
+            argTypes.add(obj == null ? null : obj.getClass());
+        }
+        Map<List<Class<?>>, Constructor<?>> constructors = CONSTRUCTORS.get(clazz);
+        Constructor<?> ret = constructors.get(argTypes);
+        if (ret == null) {
+            ret = findConstructor(clazz, objs);
+            constructors.put(argTypes, ret);
+        }
+        return (Constructor<T>) ret;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Constructor<T> findConstructor(Class<T> clazz, Object... objs)
+            throws NoSuchMethodException {
         Constructor<T> ret = null;
         for (Constructor<?> classConstructor : clazz.getDeclaredConstructors()) {
             if (isMatchingConstructor(classConstructor, objs)) {
@@ -15,9 +15,16 @@
  */
 package org.easymock.internal;
 
+import org.easymock.ControlMetrics;
 import org.easymock.IAnswer;
+import org.easymock.InvocationJournal;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -31,6 +38,9 @@ public class ReplayState implements IMocksControlState, Serializable {
 
     private final ReentrantLock lock = new ReentrantLock();
 
+    /** Locks used instead of {@code lock} when each mock method has its own */
+    private transient ConcurrentMap<MockMethodKey, ReentrantLock> methodLocks = new ConcurrentHashMap<>();
+
     public ReplayState(IMocksBehavior behavior) {
         this.behavior = behavior;
     }
@@ -40,36 +50,121 @@ public class ReplayState implements IMocksControlState, Serializable {
 
         behavior.checkThreadSafety();
 
+        MappedInvocationJournal journal = behavior.getJournal();
+        if (journal != null) {
+            journal.record(invocation);
+        }
+        MocksControlMetrics metrics = behavior.getMetrics();
+        if (metrics != null) {
+            metrics.called(invocation);
+        }
+
+        Object event = JfrEvent.REPLAY.begin();
+        if (event == null) {
+            return invoke(invocation, null);
+        }
+        ReplayTimes times = new ReplayTimes();
+        try {
+            return invoke(invocation, times);
+        } finally {
+            JfrEvent.REPLAY.commit(event, invocation.getMockAndMethodName(), times.matching, times.lockWait);
+        }
+    }
+
+    private Object invoke(Invocation invocation, ReplayTimes times) throws Throwable {
         if (behavior.isThreadSafe()) {
-            // If thread safe, synchronize the mock
-            lock.lock();
+            // Stubs and nice defaults don't change the behavior, no need to synchronize for them
+            long start = times == null ? 0 : System.nanoTime();
+            Result result = behavior.getStatelessResult(invocation);
+            if (times != null) {
+                times.matching += System.nanoTime() - start;
+            }
+            if (result != null) {
+                return invokeInner(invocation, result, times);
+            }
+
+            // Otherwise, synchronize the mock
+            ReentrantLock invocationLock = getLock(invocation);
+            if (times == null) {
+                invocationLock.lock();
+            } else {
+                start = System.nanoTime();
+                invocationLock.lock();
+                times.lockWait = System.nanoTime() - start;
+            }
             try {
-                return invokeInner(invocation);
+                return invokeInner(invocation, null, times);
             } finally {
-                lock.unlock();
+                invocationLock.unlock();
             }
         }
 
-        return invokeInner(invocation);
+        return invokeInner(invocation, null, times);
     }
 
-    private Object invokeInner(Invocation invocation) throws Throwable {
+    private ReentrantLock getLock(Invocation invocation) {
+        if (!behavior.isLockPerMethod()) {
+            return lock;
+        }
+        return methodLocks.computeIfAbsent(new MockMethodKey(invocation.getMock(), invocation.getMethodId()),
+            key -> new ReentrantLock());
+    }
+
+    private Object invokeInner(Invocation invocation, Result statelessResult, ReplayTimes times) throws Throwable {
+        // Only captures and answers look at the current invocation. Don't touch the thread local if there are none
+        if (!behavior.isCurrentInvocationNeeded()) {
+            return answer(invocation, statelessResult, times);
+        }
         LastControl.pushCurrentInvocation(invocation);
         try {
-            Result result = behavior.addActual(invocation);
-            try {
-                return result.answer();
-            } catch (Throwable t) {
-                if (result.shouldFillInStackTrace()) {
-                    throw new ThrowableWrapper(t);
-                }
-                throw t;
-            }
+            return answer(invocation, statelessResult, times);
         } finally {
             LastControl.popCurrentInvocation();
         }
     }
 
+    private Object answer(Invocation invocation, Result statelessResult, ReplayTimes times) throws Throwable {
+        Result result = statelessResult != null ? statelessResult : addActual(invocation, times);
+        MocksControlMetrics metrics = behavior.getMetrics();
+        if (metrics == null) {
+            return answer(result);
+        }
+        long start = System.nanoTime();
+        try {
+            return answer(result);
+        } finally {
+            metrics.answered(invocation, System.nanoTime() - start);
+        }
+    }
+
+    private Result addActual(Invocation invocation, ReplayTimes times) {
+        if (times == null) {
+            return behavior.addActual(invocation);
+        }
+        long start = System.nanoTime();
+        try {
+            return behavior.addActual(invocation);
+        } finally {
+            times.matching += System.nanoTime() - start;
+        }
+    }
+
+    private static Object answer(Result result) throws Throwable {
+        try {
+            return result.answer();
+        } catch (Throwable t) {
+            if (result.shouldFillInStackTrace()) {
+                throw new ThrowableWrapper(t);
+            }
+            throw t;
+        }
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        methodLocks = new ConcurrentHashMap<>();
+    }
+
     @Override
     public void verifyRecording() {
         behavior.verifyRecording();
@@ -104,6 +199,23 @@ public class ReplayState implements IMocksControlState, Serializable {
         throwWrappedIllegalStateException();
     }
 
+    @Override
+    public void lockPerMethod(boolean lockPerMethod) {
+        throwWrappedIllegalStateException();
+    }
+
+    @Override
+    public InvocationJournal journal(Path file, int size) {
+        throwWrappedIllegalStateException();
+        return null;
+    }
+
+    @Override
+    public ControlMetrics collectMetrics() {
+        throwWrappedIllegalStateException();
+        return null;
+    }
+
     @Override
     public void checkIsUsedInOneThread(boolean shouldBeUsedInOneThread) {
         throwWrappedIllegalStateException();
@@ -173,4 +285,16 @@ public class ReplayState implements IMocksControlState, Serializable {
     public void assertRecordState() {
         throwWrappedIllegalStateException();
     }
+
+    /**
+     * Times of a replayed invocation, only measured when sent to Java Flight Recorder.
+     */
+    private static final class ReplayTimes {
+
+        /** Time spent finding the expectation or stub matching the invocation */
+        long matching;
+
+        /** Time spent waiting for the lock of the mock */
+        long lockWait;
+    }
 }
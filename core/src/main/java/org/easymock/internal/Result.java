@@ -33,9 +33,12 @@ public final class Result implements IAnswer<Object>, Serializable {
 
     private final boolean shouldFillInStackTrace;
 
-    private Result(IAnswer<?> value, boolean shouldFillInStackTrace) {
+    private final boolean constant;
+
+    private Result(IAnswer<?> value, boolean shouldFillInStackTrace, boolean constant) {
         this.value = value;
         this.shouldFillInStackTrace = shouldFillInStackTrace;
+        this.constant = constant;
     }
 
     public static Result createThrowResult(final Throwable throwable) {
@@ -52,7 +55,7 @@ public final class Result implements IAnswer<Object>, Serializable {
                 return "Answer throwing " + throwable;
             }
         }
-        return new Result(new ThrowingAnswer(), true);
+        return new Result(new ThrowingAnswer(), true, true);
     }
 
     public static Result createReturnResult(final Object value) {
@@ -69,7 +72,7 @@ public final class Result implements IAnswer<Object>, Serializable {
                 return "Answer returning " + value;
             }
         }
-        return new Result(new ReturningAnswer(), true);
+        return new Result(new ReturningAnswer(), true, true);
     }
 
     public static Result createDelegatingResult(final Object value) {
@@ -122,11 +125,11 @@ public final class Result implements IAnswer<Object>, Serializable {
                 return "Delegated to " + value;
             }
         }
-        return new Result(new DelegatingAnswer(), false);
+        return new Result(new DelegatingAnswer(), false, false);
     }
 
     public static Result createAnswerResult(IAnswer<?> answer) {
-        return new Result(answer, false);
+        return new Result(answer, false, false);
     }
 
     public Object answer() throws Throwable {
@@ -137,6 +140,13 @@ public final class Result implements IAnswer<Object>, Serializable {
         return shouldFillInStackTrace;
     }
 
+    /**
+     * @return if the result always returns the same value or throws the same exception without calling any user code
+     */
+    public boolean isConstant() {
+        return constant;
+    }
+
     @Override
     public String toString() {
         return value.toString();
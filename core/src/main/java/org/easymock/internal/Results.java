@@ -15,6 +15,8 @@
  */
 package org.easymock.internal;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,6 +34,18 @@ public class Results implements Serializable {
 
     private final List<Result> results = new ArrayList<>();
 
+    /** Index of the range giving the next result. Equal to the number of ranges when all results are used */
+    private transient int current;
+
+    /** Sum of the maximum of the ranges before {@code current} */
+    private transient long callsBeforeCurrent;
+
+    /** Sum of the minimum of all ranges */
+    private transient int minimum;
+
+    /** Sum of the maximum of all ranges, {@code Integer.MAX_VALUE} if one of them is open */
+    private transient int maximum;
+
     public void add(Result result, Range range) {
         if (!ranges.isEmpty()) {
             Range lastRange = ranges.get(ranges.size() - 1);
@@ -42,41 +56,41 @@ public class Results implements Serializable {
         }
         ranges.add(range);
         results.add(result);
+        addToMainInterval(range);
+    }
+
+    private void addToMainInterval(Range range) {
+        minimum += range.getMinimum();
+        if (range.hasOpenCount() || maximum == Integer.MAX_VALUE) {
+            maximum = Integer.MAX_VALUE;
+        } else {
+            maximum += range.getMaximum();
+        }
     }
 
     public boolean hasResults() {
-        int currentPosition = 0;
-        for (Range interval : ranges) {
-            if (interval.hasOpenCount()) {
-                return true;
-            }
-            currentPosition += interval.getMaximum();
-            if (currentPosition > callCount) {
+        // Move the cursor past the ranges that are used up
+        while (current < ranges.size()) {
+            Range range = ranges.get(current);
+            if (range.hasOpenCount() || callCount < callsBeforeCurrent + range.getMaximum()) {
                 return true;
             }
+            callsBeforeCurrent += range.getMaximum();
+            current++;
         }
         return false;
     }
 
     public Result next() {
-        int currentPosition = 0;
-        for (int i = 0; i < ranges.size(); i++) {
-            Range interval = ranges.get(i);
-            if (interval.hasOpenCount()) {
-                callCount += 1;
-                return results.get(i);
-            }
-            currentPosition += interval.getMaximum();
-            if (currentPosition > callCount) {
-                callCount += 1;
-                return results.get(i);
-            }
+        if (!hasResults()) {
+            return null;
         }
-        return null;
+        callCount += 1;
+        return results.get(current);
     }
 
     public boolean hasValidCallCount() {
-        return getMainInterval().contains(callCount);
+        return minimum <= callCount && callCount <= maximum;
     }
 
     @Override
@@ -85,21 +99,17 @@ public class Results implements Serializable {
     }
 
     private Range getMainInterval() {
-        int min = 0, max = 0;
-
-        for (Range interval : ranges) {
-            min += interval.getMinimum();
-            if (interval.hasOpenCount() || max == Integer.MAX_VALUE) {
-                max = Integer.MAX_VALUE;
-            } else {
-                max += interval.getMaximum();
-            }
-        }
-
-        return new Range(min, max);
+        return new Range(minimum, maximum);
     }
 
     public int getCallCount() {
         return callCount;
     }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        for (Range range : ranges) {
+            addToMainInterval(range);
+        }
+    }
 }
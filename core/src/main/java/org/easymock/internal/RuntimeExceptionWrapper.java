@@ -25,6 +25,8 @@ public class RuntimeExceptionWrapper extends RuntimeException {
     private final RuntimeException runtimeException;
 
     public RuntimeExceptionWrapper(RuntimeException runtimeException) {
+        // Only a carrier, the stack trace is filled in on the wrapped one when it's rethrown
+        super(null, null, false, false);
         this.runtimeException = runtimeException;
     }
 
@@ -25,6 +25,8 @@ public class ThrowableWrapper extends Throwable {
     private final Throwable throwable;
 
     public ThrowableWrapper(Throwable throwable) {
+        // Only a carrier, the stack trace is filled in on the wrapped one when it's rethrown
+        super(null, null, false, false);
         this.throwable = throwable;
     }
 
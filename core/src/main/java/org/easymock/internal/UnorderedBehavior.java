@@ -15,9 +15,16 @@
  */
 package org.easymock.internal;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author OFFIS, Tammo Freese
@@ -28,6 +35,13 @@ public class UnorderedBehavior implements Serializable {
 
     private final List<ExpectedInvocationAndResults> results = new ArrayList<>();
 
+    /**
+     * Entries of {@code results} grouped by mock and method, in declaration order. An invocation can only match an
+     * expectation on the same mock and method so there's no need to look at the others. Method ids are only valid in
+     * the current JVM so it is rebuilt after deserialization.
+     */
+    private transient Map<MockMethodKey, List<ExpectedInvocationAndResults>> resultsByMethod = new HashMap<>();
+
     private final boolean checkOrder;
 
     public UnorderedBehavior(boolean checkOrder) {
@@ -35,22 +49,50 @@ public class UnorderedBehavior implements Serializable {
     }
 
     public void addExpected(ExpectedInvocation expected, Result result, Range count) {
-        for (ExpectedInvocationAndResults entry : results) {
-            if (entry.getExpectedInvocation().equals(expected)) {
-                entry.getResults().add(result, count);
-                return;
+        MockMethodKey key = new MockMethodKey(expected.getMock(), expected.getMethodId());
+        List<ExpectedInvocationAndResults> candidates = resultsByMethod.get(key);
+        if (candidates == null) {
+            candidates = new ArrayList<>(1);
+            resultsByMethod.put(key, candidates);
+        } else {
+            for (ExpectedInvocationAndResults entry : candidates) {
+                if (entry.getExpectedInvocation().equals(expected)) {
+                    entry.getResults().add(result, count);
+                    return;
+                }
             }
         }
         Results list = new Results();
         list.add(result, count);
-        results.add(new ExpectedInvocationAndResults(expected, list));
+        ExpectedInvocationAndResults entry = new ExpectedInvocationAndResults(expected, list);
+        results.add(entry);
+        candidates.add(entry);
+    }
+
+    boolean isCheckOrder() {
+        return checkOrder;
+    }
+
+    /**
+     * @return the mocks and methods having an expectation in this behavior
+     */
+    Set<MockMethodKey> getExpectedMethods() {
+        return Collections.unmodifiableSet(resultsByMethod.keySet());
     }
 
     public Result addActual(Invocation actual) {
-        for (ExpectedInvocationAndResults entry : results) {
+        List<ExpectedInvocationAndResults> candidates = resultsByMethod
+            .get(new MockMethodKey(actual.getMock(), actual.getMethodId()));
+        if (candidates == null) {
+            return null;
+        }
+        for (Iterator<ExpectedInvocationAndResults> it = candidates.iterator(); it.hasNext();) {
+            ExpectedInvocationAndResults entry = it.next();
             try {
-                // if no results are available anymore, it's worthless to try to match
+                // if no results are available anymore, it's worthless to try to match. It will never have results
+                // again so no need to look at it for the next invocations (it's still in the results for verify)
                 if (!entry.getResults().hasResults()) {
+                    it.remove();
                     continue;
                 }
                 // if it doesn't match, keep searching
@@ -79,19 +121,43 @@ public class UnorderedBehavior implements Serializable {
         return true;
     }
 
+    /**
+     * Returns the messages describing the expectations for an invocation that wasn't matched by
+     * {@link #addActual(Invocation)}. The expectations still having results were already tried then, so only the
+     * exhausted ones on the same method are matched again. The messages are only rendered when read.
+     *
+     * @param invocation the unexpected invocation or null when verifying
+     * @return the messages
+     */
     public List<ErrorMessage> getMessages(Invocation invocation) {
-        List<ErrorMessage> messages = new ArrayList<>(results.size());
+        return getMessages(invocation, false);
+    }
+
+    /**
+     * Same as {@link #getMessages(Invocation)}, but can leave out the expectations on other methods. Their results
+     * aren't read at all, so they can be changed by other threads meanwhile.
+     *
+     * @param invocation the unexpected invocation or null when verifying
+     * @param invokedMethodOnly if only the expectations on the mock and method of {@code invocation} are described
+     * @return the messages
+     */
+    public List<ErrorMessage> getMessages(Invocation invocation, boolean invokedMethodOnly) {
+        List<ErrorMessage> messages = new ArrayList<>();
         for (ExpectedInvocationAndResults entry : results) {
+            boolean sameMethod = invocation != null && entry.getExpectedInvocation().isSameMethod(invocation);
+            if (invokedMethodOnly && !sameMethod) {
+                continue;
+            }
             boolean unordered = !checkOrder;
             boolean validCallCount = entry.getResults().hasValidCallCount();
-            boolean match = invocation != null && entry.getExpectedInvocation().matches(invocation);
+            boolean match = sameMethod && !entry.getResults().hasResults()
+                    && entry.getExpectedInvocation().matches(invocation);
 
             if (unordered && validCallCount && !match) {
                 continue;
             }
 
-            ErrorMessage message = new ErrorMessage(match, entry.toString(), entry.getResults()
-                    .getCallCount());
+            ErrorMessage message = new ErrorMessage(match, entry, entry.getResults().getCallCount());
             messages.add(message);
         }
         return messages;
@@ -109,4 +175,13 @@ public class UnorderedBehavior implements Serializable {
         }
     }
 
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        resultsByMethod = new HashMap<>();
+        for (ExpectedInvocationAndResults entry : results) {
+            ExpectedInvocation expected = entry.getExpectedInvocation();
+            resultsByMethod.computeIfAbsent(new MockMethodKey(expected.getMock(), expected.getMethodId()),
+                k -> new ArrayList<>(1)).add(entry);
+        }
+    }
 }
@@ -34,6 +34,10 @@ public class And implements IArgumentMatcher, Serializable {
         this.matchers = matchers;
     }
 
+    public List<IArgumentMatcher> getMatchers() {
+        return matchers;
+    }
+
     public boolean matches(Object actual) {
         for (IArgumentMatcher matcher : matchers) {
             if (!matcher.matches(actual)) {
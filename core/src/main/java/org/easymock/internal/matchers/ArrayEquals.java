@@ -60,4 +60,9 @@ public class ArrayEquals extends Equals {
     public void appendTo(StringBuffer buffer) {
         ArgumentToString.appendArgument(getExpected(), buffer);
     }
+
+    @Override
+    public void appendTo(StringBuilder builder) {
+        ArgumentToString.appendArgument(getExpected(), builder);
+    }
 }
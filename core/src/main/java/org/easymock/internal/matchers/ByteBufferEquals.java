@@ -0,0 +1,159 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal.matchers;
+
+import org.easymock.IArgumentMatcher;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the remaining bytes of two {@code ByteBuffer}s. Heap and direct buffers can be compared with each other.
+ * Only absolute gets are used so the position and limit of the buffers are never changed, and nothing is copied. The
+ * remaining bytes of the expected buffer are only copied when the matcher is serialized.
+ */
+public class ByteBufferEquals implements IArgumentMatcher, Serializable {
+
+    private static final long serialVersionUID = -1846522345689201412L;
+
+    /** Number of bytes shown when describing the expected buffer */
+    private static final int MAX_BYTES_SHOWN = 16;
+
+    /**
+     * {@code ByteBuffer.mismatch}, available since Java 11. It is vectorized by the JVM. Its type is
+     * {@code (Object[])Object} so it can be called while compiling against Java 8.
+     */
+    private static final MethodHandle MISMATCH = findMismatch();
+
+    /** Not serializable, its remaining bytes are written instead */
+    private transient ByteBuffer expected;
+
+    public ByteBufferEquals(ByteBuffer expected) {
+        // A duplicate keeps the position and limit at recording time, it doesn't copy the content
+        this.expected = expected == null ? null : expected.duplicate();
+    }
+
+    private static MethodHandle findMismatch() {
+        try {
+            return MethodHandles.publicLookup()
+                .findVirtual(ByteBuffer.class, "mismatch", MethodType.methodType(int.class, ByteBuffer.class))
+                .asSpreader(Object[].class, 2)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean matches(Object actual) {
+        if (expected == null) {
+            return actual == null;
+        }
+        if (!(actual instanceof ByteBuffer)) {
+            return false;
+        }
+        ByteBuffer buffer = (ByteBuffer) actual;
+        return expected.remaining() == buffer.remaining() && mismatch(expected, buffer) < 0;
+    }
+
+    private static int mismatch(ByteBuffer a, ByteBuffer b) {
+        if (MISMATCH != null) {
+            try {
+                return (Integer) (Object) MISMATCH.invokeExact(new Object[] { a, b });
+            } catch (Throwable e) {
+                // ///CLOVER:OFF (mismatch doesn't throw)
+                throw new RuntimeException(e);
+                // ///CLOVER:ON
+            }
+        }
+        return compare(a, b);
+    }
+
+    /**
+     * Returns the index of the first different byte, relative to the positions, or -1 if the remaining bytes are the
+     * same. Both buffers must have the same number of remaining bytes.
+     *
+     * @param a first buffer
+     * @param b second buffer
+     * @return the index of the first mismatch or -1
+     */
+    static int compare(ByteBuffer a, ByteBuffer b) {
+        int aPosition = a.position();
+        int bPosition = b.position();
+        int length = a.remaining();
+        int i = 0;
+        // Compare 8 bytes at a time. It only works when both longs are read in the same byte order
+        if (a.order() == b.order()) {
+            for (; i <= length - Long.BYTES; i += Long.BYTES) {
+                if (a.getLong(aPosition + i) != b.getLong(bPosition + i)) {
+                    break;
+                }
+            }
+        }
+        for (; i < length; i++) {
+            if (a.get(aPosition + i) != b.get(bPosition + i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void appendTo(StringBuffer buffer) {
+        buffer.append("bufferEq(");
+        if (expected == null) {
+            buffer.append("null");
+        } else {
+            int position = expected.position();
+            int length = expected.remaining();
+            buffer.append('[');
+            for (int i = 0; i < Math.min(length, MAX_BYTES_SHOWN); i++) {
+                if (i > 0) {
+                    buffer.append(", ");
+                }
+                buffer.append(expected.get(position + i));
+            }
+            if (length > MAX_BYTES_SHOWN) {
+                buffer.append(", ... ").append(length).append(" bytes");
+            }
+            buffer.append(']');
+        }
+        buffer.append(')');
+    }
+
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        stream.defaultWriteObject();
+        byte[] bytes = null;
+        if (expected != null) {
+            // Read from a duplicate so the position of the expected buffer doesn't move
+            bytes = new byte[expected.remaining()];
+            expected.duplicate().get(bytes);
+        }
+        stream.writeObject(bytes);
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        byte[] bytes = (byte[]) stream.readObject();
+        expected = bytes == null ? null : ByteBuffer.wrap(bytes);
+    }
+}
@@ -19,6 +19,7 @@ import java.io.Serializable;
 
 import org.easymock.Capture;
 import org.easymock.IArgumentMatcher;
+import org.easymock.internal.Invocation;
 import org.easymock.internal.LastControl;
 
 /**
@@ -33,6 +34,7 @@ public class Captures<T> implements IArgumentMatcher, Serializable {
 
     private final Capture<T> capture;
 
+    /** Only set by the deprecated {@link #setPotentialValue(Object)} */
     private T potentialValue;
 
     public Captures(Capture<T> captured) {
@@ -43,6 +45,15 @@ public class Captures<T> implements IArgumentMatcher, Serializable {
         buffer.append("capture(").append(capture).append(")");
     }
 
+    /**
+     * Sets the value stored by {@link #validateCapture()} when this matcher captured nothing during the current
+     * invocation.
+     *
+     * @param potentialValue
+     *            the value to capture
+     * @deprecated the captured values are now kept by the invocation, use {@link #validateCapture(Object)}
+     */
+    @Deprecated
     public void setPotentialValue(T potentialValue) {
         this.potentialValue = potentialValue;
     }
@@ -53,7 +64,27 @@ public class Captures<T> implements IArgumentMatcher, Serializable {
         return true;
     }
 
+    /**
+     * Keeps the value in the capture. The value waits in the invocation until the call matches, so a matcher used by
+     * many threads at once doesn't mix up their values.
+     *
+     * @param value
+     *            the captured value
+     */
+    public void validateCapture(T value) {
+        capture.setValue(value);
+    }
+
+    /**
+     * Keeps in the capture the value last given to {@link #matches(Object)} during the current invocation, or else the
+     * value given to {@link #setPotentialValue(Object)}.
+     *
+     * @deprecated the captured values are now kept by the invocation, use {@link #validateCapture(Object)}
+     */
+    @Deprecated
+    @SuppressWarnings("unchecked")
     public void validateCapture() {
-        capture.setValue(potentialValue);
+        Invocation invocation = LastControl.getCurrentInvocation();
+        validateCapture(invocation == null ? potentialValue : (T) invocation.getCaptureValue(this, potentialValue));
     }
 }
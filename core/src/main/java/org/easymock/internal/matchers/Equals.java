@@ -44,6 +44,11 @@ public class Equals implements IArgumentMatcher, Serializable {
         ArgumentToString.appendArgument(expected, buffer);
     }
 
+    @Override
+    public void appendTo(StringBuilder builder) {
+        ArgumentToString.appendArgument(expected, builder);
+    }
+
     protected final Object getExpected() {
         return expected;
     }
@@ -16,6 +16,7 @@
 package org.easymock.internal.matchers;
 
 import org.easymock.IArgumentMatcher;
+import org.easymock.internal.PatternCache;
 
 import java.io.Serializable;
 import java.util.regex.Pattern;
@@ -30,7 +31,7 @@ public class Find implements IArgumentMatcher, Serializable {
     private final Pattern regex;
 
     public Find(String regex) {
-        this.regex = Pattern.compile(regex);
+        this.regex = PatternCache.getInstance().getPattern(regex);
     }
 
     public boolean matches(Object actual) {
@@ -32,6 +32,10 @@ public class Not implements IArgumentMatcher, Serializable {
         this.first = first;
     }
 
+    public IArgumentMatcher getMatcher() {
+        return first;
+    }
+
     public boolean matches(Object actual) {
         return !first.matches(actual);
     }
@@ -42,4 +42,11 @@ public class Same implements IArgumentMatcher, Serializable {
         ArgumentToString.appendArgument(expected, buffer);
         buffer.append(")");
     }
+
+    @Override
+    public void appendTo(StringBuilder builder) {
+        builder.append("same(");
+        ArgumentToString.appendArgument(expected, builder);
+        builder.append(")");
+    }
 }
@@ -0,0 +1,530 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import net.sf.cglib.proxy.Factory;
+import org.easymock.ConstructorArgs;
+import org.easymock.MockType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * Class mocks defined as hidden classes. Skipped when the JVM can't define them.
+ */
+public class HiddenClassProxyFactoryTest {
+
+    public static abstract class ToMock {
+
+        private final int value;
+
+        protected ToMock() {
+            this(0);
+        }
+
+        public ToMock(int value) {
+            this.value = value;
+        }
+
+        public String foo(String s, long l, double... d) {
+            return "foo";
+        }
+
+        int packageScoped(int i) {
+            return i;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public abstract boolean isAbstract();
+
+        public final String finalMethod() {
+            return "final";
+        }
+    }
+
+    static abstract class GenericHolder<T> {
+        abstract void set(T value);
+
+        void go(T value) {
+            set(value);
+        }
+    }
+
+    public static class StringHolder extends GenericHolder<String> {
+        String value;
+
+        @Override
+        void set(String value) {
+            this.value = value;
+        }
+    }
+
+    public static abstract class CallAbstractInConstructor {
+        public CallAbstractInConstructor() {
+            isAbstract();
+        }
+
+        public abstract boolean isAbstract();
+    }
+
+    public static class SerializableToMock implements Serializable {
+        private static final long serialVersionUID = 1L;
+    }
+
+    public interface WithDefault {
+        default String defaultMethod(String s) {
+            return "default " + s;
+        }
+    }
+
+    /**
+     * One method per shape of generated method. The real methods compute their result from their arguments so a
+     * partial mock shows the arguments reached them.
+     */
+    public static abstract class Shapes implements WithDefault {
+
+        int voidCalls;
+
+        public void voidMethod(int i) {
+            voidCalls += i;
+        }
+
+        public boolean booleanMethod(boolean b) {
+            return !b;
+        }
+
+        public byte byteMethod(byte b) {
+            return (byte) (b + 1);
+        }
+
+        public char charMethod(char c) {
+            return (char) (c + 1);
+        }
+
+        public short shortMethod(short s) {
+            return (short) (s + 1);
+        }
+
+        public int intMethod(int i) {
+            return i + 1;
+        }
+
+        public long longMethod(long l) {
+            return l + 1;
+        }
+
+        public float floatMethod(float f) {
+            return f + 1;
+        }
+
+        public double doubleMethod(double d) {
+            return d + 1;
+        }
+
+        public String objectMethod(Object o) {
+            return "real " + o;
+        }
+
+        public int[] varargsMethod(int... values) {
+            return values;
+        }
+
+        public String wideArguments(long l, int i, double d, Object o) {
+            return l + " " + i + " " + d + " " + o;
+        }
+
+        protected String protectedMethod() {
+            return "protected";
+        }
+
+        String packageMethod() {
+            return "package";
+        }
+
+        public String throwing() throws IOException {
+            throw new IOException("real");
+        }
+
+        public abstract String abstractMethod();
+    }
+
+    private final HiddenClassProxyFactory factory = new HiddenClassProxyFactory();
+
+    private final MocksControl control = new MocksControl(MockType.DEFAULT);
+
+    @Before
+    public void before() {
+        assumeTrue(HiddenClassProxyFactory.isSupported());
+    }
+
+    @Test
+    public void mock() {
+        ToMock mock = createProxy(ToMock.class, null, null);
+
+        assertFalse(mock instanceof Factory);
+        assertEquals(ToMock.class, mock.getClass().getSuperclass());
+
+        expect(mock.foo("a", 1L, 2.0, 3.0)).andReturn("b");
+        expect(mock.packageScoped(1)).andReturn(2);
+        expect(mock.isAbstract()).andReturn(true);
+        expect(mock.getValue()).andReturn(3);
+        control.replay();
+
+        assertEquals("b", mock.foo("a", 1L, 2.0, 3.0));
+        assertEquals(2, mock.packageScoped(1));
+        assertTrue(mock.isAbstract());
+        assertEquals(3, mock.getValue());
+        assertEquals("final", mock.finalMethod());
+        control.verify();
+    }
+
+    @Test
+    public void objectMethods() {
+        ToMock mock = createProxy(ToMock.class, null, null);
+
+        assertEquals("EasyMock for " + ToMock.class, mock.toString());
+        assertEquals(System.identityHashCode(mock), mock.hashCode());
+        assertEquals(mock, mock);
+    }
+
+    @Test
+    public void partialMock() throws Exception {
+        Method foo = ToMock.class.getMethod("foo", String.class, long.class, double[].class);
+        ConstructorArgs args = new ConstructorArgs(ToMock.class.getConstructor(int.class), 5);
+        ToMock mock = createProxy(ToMock.class, args, new Method[] { foo });
+
+        expect(mock.foo("a", 1L)).andReturn("b");
+        expect(mock.isAbstract()).andReturn(true);
+        control.replay();
+
+        assertEquals("b", mock.foo("a", 1L));
+        assertTrue(mock.isAbstract());
+        assertEquals(5, mock.getValue());
+        assertEquals(3, mock.packageScoped(3));
+        control.verify();
+    }
+
+    @Test
+    public void sameClassForAllMocks() {
+        ToMock first = createProxy(ToMock.class, null, null);
+        ToMock second = createProxy(ToMock.class, null, null);
+
+        assertSame(first.getClass(), second.getClass());
+    }
+
+    @Test
+    public void fallbackToCglibForJdkClasses() {
+        ArrayList<?> mock = createProxy(ArrayList.class, null, null);
+
+        assertTrue(mock instanceof Factory);
+        assertTrue(factory.getInvocationHandler(mock) instanceof ObjectMethodsFilter);
+    }
+
+    @Test
+    public void fallbackToCglibForSerializableClasses() {
+        SerializableToMock mock = createProxy(SerializableToMock.class, null, null);
+
+        assertTrue(mock instanceof Factory);
+    }
+
+    @Test
+    public void fallbackToCglibForCustomInstantiator() {
+        ClassInstantiatorFactory.setInstantiator(new DefaultClassInstantiator());
+        try {
+            ToMock mock = createProxy(ToMock.class, null, null);
+            assertTrue(mock instanceof Factory);
+        } finally {
+            ClassInstantiatorFactory.setDefaultInstantiator();
+        }
+    }
+
+    @Test
+    public void bridgeIsNotIntercepted() throws Exception {
+        StringHolder mock = createProxy(StringHolder.class, null, new Method[0]);
+
+        mock.go("hello");
+        assertEquals("hello", mock.value);
+        assertFalse(contains(HiddenClassProxyFactory.findMethodsToIntercept(StringHolder.class),
+            GenericHolder.class.getDeclaredMethod("set", Object.class)));
+    }
+
+    @Test
+    public void abstractMethodCalledByConstructor() throws Exception {
+        ConstructorArgs args = new ConstructorArgs(CallAbstractInConstructor.class.getConstructor());
+        try {
+            createProxy(CallAbstractInConstructor.class, args, null);
+            fail("Nothing to call in the constructor");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof AbstractMethodError);
+        }
+    }
+
+    @Test
+    public void isHiddenMock() {
+        assertTrue(HiddenClassProxyFactory.isHiddenMock(createProxy(ToMock.class, null, null)));
+        assertFalse(HiddenClassProxyFactory.isHiddenMock(createProxy(ArrayList.class, null, null)));
+        assertFalse(HiddenClassProxyFactory.isHiddenMock("a"));
+    }
+
+    @Test
+    public void getInvocationHandler() {
+        ObjectMethodsFilter handler = new ObjectMethodsFilter(ToMock.class, new MockInvocationHandler(control), null);
+        ToMock mock = factory.createProxy(ToMock.class, handler, null, null);
+
+        assertSame(handler, factory.getInvocationHandler(mock));
+    }
+
+    @Test
+    public void getInvocationHandlerOfNotAMock() {
+        assertThrows(ClassCastException.class, () -> factory.getInvocationHandler("a"));
+    }
+
+    @Test
+    public void voidMethod() {
+        Shapes mock = mockShapes();
+        mock.voidMethod(1);
+        control.replay();
+        mock.voidMethod(1);
+        control.verify();
+
+        Shapes real = realShapes();
+        real.voidMethod(2);
+        assertEquals(2, real.voidCalls);
+    }
+
+    @Test
+    public void booleanMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.booleanMethod(true)).andReturn(true);
+        control.replay();
+        assertTrue(mock.booleanMethod(true));
+
+        assertFalse(realShapes().booleanMethod(true));
+    }
+
+    @Test
+    public void byteMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.byteMethod((byte) 1)).andReturn((byte) -1);
+        control.replay();
+        assertEquals(-1, mock.byteMethod((byte) 1));
+
+        assertEquals(2, realShapes().byteMethod((byte) 1));
+    }
+
+    @Test
+    public void charMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.charMethod('a')).andReturn('z');
+        control.replay();
+        assertEquals('z', mock.charMethod('a'));
+
+        assertEquals('b', realShapes().charMethod('a'));
+    }
+
+    @Test
+    public void shortMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.shortMethod((short) 1)).andReturn((short) -1);
+        control.replay();
+        assertEquals(-1, mock.shortMethod((short) 1));
+
+        assertEquals(2, realShapes().shortMethod((short) 1));
+    }
+
+    @Test
+    public void intMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.intMethod(1)).andReturn(-1);
+        control.replay();
+        assertEquals(-1, mock.intMethod(1));
+
+        assertEquals(2, realShapes().intMethod(1));
+    }
+
+    @Test
+    public void longMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.longMethod(Long.MAX_VALUE - 1)).andReturn(Long.MIN_VALUE);
+        control.replay();
+        assertEquals(Long.MIN_VALUE, mock.longMethod(Long.MAX_VALUE - 1));
+
+        assertEquals(Long.MAX_VALUE, realShapes().longMethod(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void floatMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.floatMethod(1.5f)).andReturn(-1.5f);
+        control.replay();
+        assertEquals(-1.5f, mock.floatMethod(1.5f), 0f);
+
+        assertEquals(2.5f, realShapes().floatMethod(1.5f), 0f);
+    }
+
+    @Test
+    public void doubleMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.doubleMethod(1.5)).andReturn(-1.5);
+        control.replay();
+        assertEquals(-1.5, mock.doubleMethod(1.5), 0.0);
+
+        assertEquals(2.5, realShapes().doubleMethod(1.5), 0.0);
+    }
+
+    @Test
+    public void objectMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.objectMethod("a")).andReturn("b");
+        expect(mock.objectMethod(null)).andReturn(null);
+        control.replay();
+        assertEquals("b", mock.objectMethod("a"));
+        assertNull(mock.objectMethod(null));
+
+        assertEquals("real a", realShapes().objectMethod("a"));
+    }
+
+    @Test
+    public void varargsMethod() throws Exception {
+        assertTrue(mockShapes().getClass().getMethod("varargsMethod", int[].class).isVarArgs());
+
+        Shapes mock = mockShapes();
+        int[] result = { 3 };
+        expect(mock.varargsMethod(1, 2)).andReturn(result);
+        control.replay();
+        assertSame(result, mock.varargsMethod(1, 2));
+
+        assertArrayEquals(new int[] { 1, 2 }, realShapes().varargsMethod(1, 2));
+    }
+
+    @Test
+    public void wideArguments() {
+        Shapes mock = mockShapes();
+        expect(mock.wideArguments(1L, 2, 3.0, "4")).andReturn("mocked");
+        control.replay();
+        assertEquals("mocked", mock.wideArguments(1L, 2, 3.0, "4"));
+
+        assertEquals("1 2 3.0 4", realShapes().wideArguments(1L, 2, 3.0, "4"));
+    }
+
+    @Test
+    public void protectedMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.protectedMethod()).andReturn("mocked");
+        control.replay();
+        assertEquals("mocked", mock.protectedMethod());
+
+        assertEquals("protected", realShapes().protectedMethod());
+    }
+
+    @Test
+    public void packageMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.packageMethod()).andReturn("mocked");
+        control.replay();
+        assertEquals("mocked", mock.packageMethod());
+
+        assertEquals("package", realShapes().packageMethod());
+    }
+
+    @Test
+    public void defaultMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.defaultMethod("a")).andReturn("mocked");
+        control.replay();
+        assertEquals("mocked", mock.defaultMethod("a"));
+
+        assertEquals("default a", realShapes().defaultMethod("a"));
+    }
+
+    @Test
+    public void checkedException() throws Exception {
+        Shapes mock = mockShapes();
+        expect(mock.throwing()).andThrow(new IOException("mocked"));
+        control.replay();
+        IOException e = assertThrows(IOException.class, mock::throwing);
+        assertEquals("mocked", e.getMessage());
+
+        e = assertThrows(IOException.class, realShapes()::throwing);
+        assertEquals("real", e.getMessage());
+    }
+
+    @Test
+    public void abstractMethod() {
+        Shapes mock = mockShapes();
+        expect(mock.abstractMethod()).andReturn("mocked");
+        control.replay();
+        assertEquals("mocked", mock.abstractMethod());
+
+        // Not mocked but there's nothing to call, so it reaches the handler like with cglib
+        Shapes real = realShapes();
+        assertThrows(AssertionError.class, real::abstractMethod);
+    }
+
+    @Test
+    public void otherHandler() throws Exception {
+        InvocationHandler handler = (proxy, method, args) -> method.getName().equals("intMethod") ? 42 : null;
+        Shapes mock = factory.createProxy(Shapes.class, handler, null, null);
+
+        assertEquals(42, mock.intMethod(1));
+        assertNull(mock.objectMethod("a"));
+        assertSame(handler, factory.getInvocationHandler(mock));
+    }
+
+    @Test
+    public void findMethodsToIntercept() throws Exception {
+        Method[] methods = HiddenClassProxyFactory.findMethodsToIntercept(ToMock.class);
+        assertTrue(contains(methods, ToMock.class.getDeclaredMethod("packageScoped", int.class)));
+        assertTrue(contains(methods, Object.class.getMethod("toString")));
+        assertFalse(contains(methods, ToMock.class.getMethod("finalMethod")));
+        assertFalse(contains(methods, Object.class.getDeclaredMethod("finalize")));
+    }
+
+    private Shapes mockShapes() {
+        return createProxy(Shapes.class, null, null);
+    }
+
+    /** A partial mock where no method is mocked */
+    private Shapes realShapes() {
+        return createProxy(Shapes.class, null, new Method[0]);
+    }
+
+    private <T> T createProxy(Class<T> toMock, ConstructorArgs args, Method[] mockedMethods) {
+        return factory.createProxy(toMock, new ObjectMethodsFilter(toMock, new MockInvocationHandler(control), null),
+            mockedMethods, args);
+    }
+
+    private static boolean contains(Method[] methods, Method method) {
+        for (Method m : methods) {
+            if (m.equals(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * The {@code jdk.jfr} classes are only reached by reflection since the tests also run on Java 8.
+ */
+public class JfrEventTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static boolean isJfrSupported() {
+        try {
+            Class.forName("jdk.jfr.EventFactory");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static JfrEvent newEvent(String name) {
+        return new JfrEvent(true, name, "Test", "A test event", false, JfrEvent.field(String.class, "name", "Name"),
+            JfrEvent.timespan("elapsed", "Elapsed"), JfrEvent.field(boolean.class, "flag", "Flag"));
+    }
+
+    private static Object call(Object target, String method, Object... args) throws Exception {
+        for (Method m : target.getClass().getMethods()) {
+            if (m.getName().equals(method) && accepts(m.getParameterTypes(), args)) {
+                return m.invoke(target, args);
+            }
+        }
+        throw new NoSuchMethodException(method);
+    }
+
+    private static boolean accepts(Class<?>[] types, Object[] args) {
+        if (types.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (!types[i].isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertFalse(JfrEvent.isAvailable());
+        assertNull(JfrEvent.CREATE_MOCK.begin());
+        assertNull(JfrEvent.REPLAY.begin());
+        assertNull(JfrEvent.VERIFY.begin());
+        assertNull(JfrEvent.INJECT_MOCKS.begin());
+    }
+
+    @Test
+    public void notRecording() {
+        assumeTrue(isJfrSupported());
+        JfrEvent event = newEvent("org.easymock.NotRecorded");
+        assertTrue(event.isEnabled());
+        assertNull(event.begin());
+    }
+
+    @Test
+    public void recorded() throws Exception {
+        assumeTrue(isJfrSupported());
+        JfrEvent event = newEvent("org.easymock.Recorded");
+
+        Object recording = Class.forName("jdk.jfr.Recording").getConstructor().newInstance();
+        Path file = folder.newFile().toPath();
+        try {
+            call(recording, "enable", "org.easymock.Recorded");
+            call(recording, "start");
+
+            Object e = event.begin();
+            assertNotNull(e);
+            event.commit(e, "a", 42L, true);
+
+            call(recording, "stop");
+            call(recording, "dump", file);
+        } finally {
+            call(recording, "close");
+        }
+
+        List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+            .getMethod("readAllEvents", Path.class).invoke(null, file);
+        assertEquals(1, events.size());
+        Object recorded = events.get(0);
+        assertEquals("org.easymock.Recorded", call(call(recorded, "getEventType"), "getName"));
+        assertEquals("a", call(recorded, "getValue", "name"));
+        assertEquals(42L, call(recorded, "getValue", "elapsed"));
+        assertEquals(true, call(recorded, "getValue", "flag"));
+    }
+}
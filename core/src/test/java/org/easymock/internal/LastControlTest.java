@@ -0,0 +1,109 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.Capture;
+import org.easymock.IArgumentMatcher;
+import org.easymock.IMocksControl;
+import org.easymock.tests.IMethods;
+import org.easymock.internal.matchers.Any;
+import org.easymock.internal.matchers.Captures;
+import org.easymock.internal.matchers.Not;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * The per-thread context of {@link LastControl}, set when recording and cleaned afterwards.
+ */
+public class LastControlTest {
+
+    @After
+    public void after() {
+        LastControl.reportLastControl(null);
+        LastControl.pullMatchers();
+    }
+
+    @Test
+    public void invocationStack() {
+        Invocation first = new Invocation(this, ReflectionUtils.OBJECT_TOSTRING, new Object[0]);
+        Invocation second = new Invocation(this, ReflectionUtils.OBJECT_HASHCODE, new Object[0]);
+        Invocation third = new Invocation(this, ReflectionUtils.OBJECT_EQUALS, new Object[] { this });
+
+        assertNull(LastControl.getCurrentInvocation());
+        LastControl.pushCurrentInvocation(first);
+        LastControl.pushCurrentInvocation(second);
+        LastControl.pushCurrentInvocation(third);
+        assertSame(third, LastControl.getCurrentInvocation());
+        LastControl.popCurrentInvocation();
+        assertSame(second, LastControl.getCurrentInvocation());
+        LastControl.popCurrentInvocation();
+        assertSame(first, LastControl.getCurrentInvocation());
+        LastControl.popCurrentInvocation();
+        assertNull(LastControl.getCurrentInvocation());
+    }
+
+    @Test
+    public void matchers() {
+        assertNull(LastControl.pullMatchers());
+        LastControl.reportMatcher(Any.ANY);
+        LastControl.reportMatcher(Any.ANY);
+        List<?> matchers = LastControl.pullMatchers();
+        assertEquals(2, matchers.size());
+        assertNull(LastControl.pullMatchers());
+    }
+
+    @Test
+    public void constantAnswersDontNeedCurrentInvocation() {
+        MocksBehavior behavior = new MocksBehavior(false);
+        Invocation invocation = new Invocation(this, ReflectionUtils.OBJECT_TOSTRING, new Object[0]);
+        behavior.addExpected(new ExpectedInvocation(invocation, null), Result.createReturnResult("a"), new Range(1));
+        behavior.addStub(new ExpectedInvocation(invocation, null), Result.createThrowResult(new Exception()));
+        assertFalse(behavior.isCurrentInvocationNeeded());
+
+        behavior.addStub(new ExpectedInvocation(invocation, null), Result.createAnswerResult(() -> "b"));
+        assertTrue(behavior.isCurrentInvocationNeeded());
+    }
+
+    @Test
+    public void capturesNeedCurrentInvocation() {
+        MocksBehavior behavior = new MocksBehavior(false);
+        Invocation invocation = new Invocation(this, ReflectionUtils.OBJECT_EQUALS, new Object[] { this });
+        List<IArgumentMatcher> matchers = Collections.singletonList(
+            new Not(new Captures<>(Capture.newInstance())));
+        behavior.addExpected(new ExpectedInvocation(invocation, matchers), Result.createReturnResult(true),
+            new Range(1));
+        assertTrue(behavior.isCurrentInvocationNeeded());
+    }
+
+    @Test
+    public void answersSeeCurrentInvocation() {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        Capture<Integer> captured = newCapture();
+        expect(mock.oneArg(and(captureInt(captured), gt(0)))).andAnswer(() -> "" + getCurrentArgument(0));
+        control.replay();
+        assertEquals("1", mock.oneArg(1));
+        assertEquals(1, captured.getValue().intValue());
+        assertNull(LastControl.getCurrentInvocation());
+        control.verify();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ids given to the methods by {@link MethodIds}.
+ */
+public class MethodIdsTest {
+
+    @Test
+    public void sameMethodSameId() throws Exception {
+        // Two different instances of the same method
+        Method first = List.class.getMethod("size");
+        Method second = List.class.getMethod("size");
+        assertNotSame(first, second);
+
+        assertEquals(MethodIds.getId(first), MethodIds.getId(second));
+    }
+
+    @Test
+    public void differentMethodsDifferentIds() throws Exception {
+        int listSize = MethodIds.getId(List.class.getMethod("size"));
+        int listIsEmpty = MethodIds.getId(List.class.getMethod("isEmpty"));
+        int arrayListSize = MethodIds.getId(ArrayList.class.getMethod("size"));
+        int addInt = MethodIds.getId(List.class.getMethod("add", int.class, Object.class));
+        int addObject = MethodIds.getId(List.class.getMethod("add", Object.class));
+
+        assertNotEquals(listSize, listIsEmpty);
+        assertNotEquals(listSize, arrayListSize);
+        assertNotEquals(addInt, addObject);
+    }
+
+    @Test
+    public void manyInstancesOfTheSameMethod() throws Exception {
+        int id = MethodIds.getId(Runnable.class.getMethod("run"));
+        // More copies than remembered by identity
+        for (int i = 0; i < 10; i++) {
+            assertEquals(id, MethodIds.getId(Runnable.class.getMethod("run")));
+        }
+    }
+}
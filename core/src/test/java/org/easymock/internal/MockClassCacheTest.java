@@ -0,0 +1,77 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Mock classes are generated once per mocked class and released with their class loader.
+ */
+public class MockClassCacheTest {
+
+    private final MockClassCache cache = new MockClassCache();
+
+    @Test
+    public void generateOnlyOnce() {
+        AtomicInteger generated = new AtomicInteger();
+
+        Class<?> first = cache.get(ArrayList.class, c -> {
+            generated.incrementAndGet();
+            return Integer.class;
+        });
+        Class<?> second = cache.get(ArrayList.class, c -> {
+            generated.incrementAndGet();
+            return Long.class;
+        });
+
+        assertSame(Integer.class, first);
+        assertSame(Integer.class, second);
+        assertEquals(1, generated.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void clear() {
+        cache.get(ArrayList.class, c -> Integer.class);
+        cache.get(ArrayList.class, c -> Integer.class);
+
+        cache.clear();
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void classMocksShareTheirClass() {
+        MockClassCache shared = ClassProxyFactory.getMockClassCache();
+        long hits = shared.getHitCount();
+
+        Object first = EasyMock.createMock(ArrayList.class);
+        Object second = EasyMock.createMock(ArrayList.class);
+
+        assertSame(first.getClass(), second.getClass());
+        assertTrue(shared.getHitCount() > hits);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import net.sf.cglib.proxy.Factory;
+import org.easymock.EasyMock;
+import org.easymock.Mock;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Mock classes generated at build time by {@link MockClassGenerator} and loaded instead of being generated again.
+ */
+public class MockClassGeneratorTest {
+
+    public static class ToMock {
+        public String foo() {
+            return "foo";
+        }
+    }
+
+    public static class ToMockWithMore extends ToMock {
+        public String bar() {
+            return "bar";
+        }
+    }
+
+    public static class Pregenerated {
+        public String foo() {
+            return "foo";
+        }
+    }
+
+    public static class StalePregenerated {
+        public String foo() {
+            return "foo";
+        }
+    }
+
+    /**
+     * Loads the classes of a directory before asking its parent, to get a fresh copy of a test class next to its
+     * pregenerated mock class.
+     */
+    private static class ChildFirstClassLoader extends URLClassLoader {
+
+        ChildFirstClassLoader(Path directory) throws MalformedURLException {
+            super(new URL[] { directory.toUri().toURL() }, MockClassGeneratorTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (c != null) {
+                    return c;
+                }
+                try {
+                    return findClass(name);
+                } catch (ClassNotFoundException e) {
+                    return super.loadClass(name, resolve);
+                }
+            }
+        }
+    }
+
+    public static class WithMocks {
+        @Mock
+        private ToMock toMock;
+
+        @Mock
+        private List<String> anInterface;
+
+        private ToMock notAMock;
+    }
+
+    /** Generating the bytecode also defines the mock class, so it can only be done once */
+    private static byte[] pregeneratedBytecode;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generate() throws Exception {
+        Path testClasses = folder.newFolder("test-classes").toPath();
+        Path output = folder.newFolder("output").toPath();
+        copyClass(WithMocks.class, testClasses);
+
+        Set<Class<?>> generated = MockClassGenerator.generate(testClasses, output);
+
+        assertEquals(Collections.singleton(ToMock.class), generated);
+
+        String mockClassName = ToMock.class.getName() + ClassProxyFactory.PREGENERATED_SUFFIX;
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { output.toUri().toURL() }, getClass().getClassLoader())) {
+            Class<?> mockClass = loader.loadClass(mockClassName);
+            assertSame(ToMock.class, mockClass.getSuperclass());
+            assertTrue(Factory.class.isAssignableFrom(mockClass));
+        }
+    }
+
+    @Test
+    public void pregeneratedClassIsUsed() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        copyClass(Pregenerated.class, directory);
+        String mockClassName = Pregenerated.class.getName() + ClassProxyFactory.PREGENERATED_SUFFIX;
+        writeClass(directory, mockClassName, pregeneratedBytecode());
+
+        try (URLClassLoader loader = new ChildFirstClassLoader(directory)) {
+            Class<?> toMock = loader.loadClass(Pregenerated.class.getName());
+            Class<?> mockClass = ClassProxyFactory.loadPregeneratedMockClass(toMock);
+            assertNotNull(mockClass);
+            assertEquals(mockClassName, mockClass.getName());
+        }
+    }
+
+    @Test
+    public void pregeneratedClassIsUsedWhenEnabled() throws Exception {
+        String previous = EasyMock.setEasyMockProperty(EasyMock.ENABLE_PREGENERATED_MOCKS, "true");
+        try {
+            assertEquals(Pregenerated.class.getName() + ClassProxyFactory.PREGENERATED_SUFFIX,
+                createPregeneratedMock().getClass().getName());
+        } finally {
+            EasyMock.setEasyMockProperty(EasyMock.ENABLE_PREGENERATED_MOCKS, previous);
+        }
+    }
+
+    @Test
+    public void pregeneratedClassIsIgnoredByDefault() throws Exception {
+        assertNotEquals(Pregenerated.class.getName() + ClassProxyFactory.PREGENERATED_SUFFIX,
+            createPregeneratedMock().getClass().getName());
+    }
+
+    @Test
+    public void stalePregeneratedClassIsIgnored() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        copyClass(StalePregenerated.class, directory);
+        String mockClassName = StalePregenerated.class.getName() + ClassProxyFactory.PREGENERATED_SUFFIX;
+        // Generated when the mocked class had other methods
+        writeClass(directory, mockClassName, ClassProxyFactory.generateMockClassBytecode(StalePregenerated.class,
+            ClassProxyFactory.fingerprint(ToMockWithMore.class)));
+
+        try (URLClassLoader loader = new ChildFirstClassLoader(directory)) {
+            Class<?> toMock = loader.loadClass(StalePregenerated.class.getName());
+            assertNotNull(loader.loadClass(mockClassName));
+            assertNull(ClassProxyFactory.loadPregeneratedMockClass(toMock));
+
+            // Generated at runtime instead
+            Object mock = new ClassProxyFactory().createProxy(toMock, (proxy, method, args) -> "mocked", null, null);
+            assertNotEquals(mockClassName, mock.getClass().getName());
+            assertEquals("mocked", toMock.getMethod("foo").invoke(mock));
+        }
+    }
+
+    @Test
+    public void fingerprintChangesWithTheMethods() {
+        assertEquals(ClassProxyFactory.fingerprint(ToMock.class), ClassProxyFactory.fingerprint(ToMock.class));
+        assertEquals(ClassProxyFactory.fingerprint(ToMock.class), ClassProxyFactory.fingerprint(Pregenerated.class));
+        assertNotEquals(ClassProxyFactory.fingerprint(ToMock.class),
+            ClassProxyFactory.fingerprint(ToMockWithMore.class));
+    }
+
+    @Test
+    public void bootstrapClassesAreNotPregenerated() {
+        assertFalse(ClassProxyFactory.canBePregenerated(String.class));
+        assertTrue(ClassProxyFactory.canBePregenerated(ToMock.class));
+    }
+
+    private static synchronized byte[] pregeneratedBytecode() {
+        if (pregeneratedBytecode == null) {
+            pregeneratedBytecode = ClassProxyFactory.generateMockClassBytecode(Pregenerated.class);
+        }
+        return pregeneratedBytecode;
+    }
+
+    /** Mocks a fresh copy of {@link Pregenerated}, loaded next to its pregenerated mock class */
+    private Object createPregeneratedMock() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        copyClass(Pregenerated.class, directory);
+        writeClass(directory, Pregenerated.class.getName() + ClassProxyFactory.PREGENERATED_SUFFIX,
+            pregeneratedBytecode());
+
+        try (URLClassLoader loader = new ChildFirstClassLoader(directory)) {
+            Class<?> toMock = loader.loadClass(Pregenerated.class.getName());
+            Object mock = new ClassProxyFactory().createProxy(toMock, (proxy, method, args) -> "mocked", null, null);
+            assertEquals("mocked", toMock.getMethod("foo").invoke(mock));
+            return mock;
+        }
+    }
+
+    private static void writeClass(Path directory, String className, byte[] bytecode) throws Exception {
+        Path target = directory.resolve(className.replace('.', '/') + ".class");
+        Files.createDirectories(target.getParent());
+        Files.write(target, bytecode);
+    }
+
+    private static void copyClass(Class<?> c, Path directory) throws Exception {
+        String path = c.getName().replace('.', '/') + ".class";
+        Path target = directory.resolve(path);
+        Files.createDirectories(target.getParent());
+        try (InputStream in = c.getClassLoader().getResourceAsStream(path)) {
+            Files.copy(in, target);
+        }
+    }
+}
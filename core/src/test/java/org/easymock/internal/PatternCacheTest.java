@@ -0,0 +1,148 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.easymock.EasyMock;
+import org.easymock.internal.matchers.Find;
+import org.easymock.internal.matchers.Matches;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Compiled patterns shared by the {@code matches} and {@code find} matchers.
+ */
+public class PatternCacheTest {
+
+    private final PatternCache cache = new PatternCache();
+
+    private final String previousSize = getEasyMockProperty(EasyMock.PATTERN_CACHE_SIZE);
+
+    @After
+    public void after() {
+        setEasyMockProperty(EasyMock.PATTERN_CACHE_SIZE, previousSize);
+    }
+
+    @Test
+    public void samePatternReturned() {
+        Pattern pattern = cache.getPattern("a.*");
+        assertSame(pattern, cache.getPattern("a.*"));
+        assertNotSame(pattern, cache.getPattern("b.*"));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRate(), 0.0);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        setEasyMockProperty(EasyMock.PATTERN_CACHE_SIZE, "2");
+        PatternCache cache = new PatternCache();
+
+        Pattern a = cache.getPattern("a");
+        Pattern b = cache.getPattern("b");
+        cache.getPattern("a");
+        cache.getPattern("c");
+
+        assertEquals(2, cache.size());
+        assertSame(a, cache.getPattern("a"));
+        assertNotSame(b, cache.getPattern("b"));
+    }
+
+    @Test
+    public void disabled() {
+        setEasyMockProperty(EasyMock.PATTERN_CACHE_SIZE, "0");
+        PatternCache cache = new PatternCache();
+
+        assertNotSame(cache.getPattern("a"), cache.getPattern("a"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void invalidSize() {
+        setEasyMockProperty(EasyMock.PATTERN_CACHE_SIZE, "abc");
+        PatternCache cache = new PatternCache();
+
+        // Ignored, the default size is used
+        assertSame(cache.getPattern("a"), cache.getPattern("a"));
+    }
+
+    @Test
+    public void sizeReadWhenCreated() {
+        Pattern a = cache.getPattern("a");
+        setEasyMockProperty(EasyMock.PATTERN_CACHE_SIZE, "0");
+
+        assertSame(a, cache.getPattern("a"));
+        cache.getPattern("b");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void addedPatternNotEvicted() {
+        setEasyMockProperty(EasyMock.PATTERN_CACHE_SIZE, "2");
+        PatternCache cache = new PatternCache();
+
+        cache.getPattern("a");
+        cache.getPattern("b");
+        cache.getPattern("a");
+        cache.getPattern("b");
+        // All used, so one of a and b is evicted
+        Pattern c = cache.getPattern("c");
+
+        assertEquals(2, cache.size());
+        assertSame(c, cache.getPattern("c"));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void invalidPatternNotCached() {
+        try {
+            cache.getPattern("(");
+        } finally {
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void clear() {
+        cache.getPattern("a");
+        cache.getPattern("a");
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void sharedByMatchers() {
+        PatternCache shared = PatternCache.getInstance();
+        long hits = shared.getHitCount();
+        Matches matches = new Matches("x+y");
+        Find find = new Find("x+y");
+
+        assertTrue(matches.matches("xxy"));
+        assertTrue(find.matches("axya"));
+        assertFalse(matches.matches("axya"));
+        assertTrue(shared.getHitCount() > hits);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The cursor kept by {@link Results} on the range currently answering.
+ */
+public class ResultsTest {
+
+    private final Results results = new Results();
+
+    @Test
+    public void segments() {
+        Result a = Result.createReturnResult("a");
+        Result b = Result.createReturnResult("b");
+        Result c = Result.createReturnResult("c");
+        results.add(a, new Range(2));
+        results.add(b, new Range(1));
+        results.add(c, new Range(1, 2));
+
+        assertEquals("expected: between 4 and 5", results.toString());
+        assertFalse(results.hasValidCallCount());
+
+        assertSame(a, results.next());
+        assertSame(a, results.next());
+        assertSame(b, results.next());
+        assertFalse(results.hasValidCallCount());
+        assertSame(c, results.next());
+        assertTrue(results.hasValidCallCount());
+        assertTrue(results.hasResults());
+        assertSame(c, results.next());
+        assertTrue(results.hasValidCallCount());
+
+        assertFalse(results.hasResults());
+        assertNull(results.next());
+        assertEquals(5, results.getCallCount());
+    }
+
+    @Test
+    public void openCount() {
+        Result a = Result.createReturnResult("a");
+        Result b = Result.createReturnResult("b");
+        results.add(a, new Range(1));
+        results.add(b, new Range(1, Integer.MAX_VALUE));
+
+        assertEquals("expected: at least 2", results.toString());
+        assertSame(a, results.next());
+        for (int i = 0; i < 1000; i++) {
+            assertSame(b, results.next());
+        }
+        assertTrue(results.hasResults());
+        assertTrue(results.hasValidCallCount());
+    }
+
+    @Test
+    public void longChain() throws Throwable {
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            results.add(Result.createReturnResult(i), new Range(1));
+        }
+        for (int i = 0; i < count; i++) {
+            assertTrue(results.hasResults());
+            assertEquals(i, results.next().answer());
+        }
+        assertFalse(results.hasResults());
+        assertTrue(results.hasValidCallCount());
+    }
+}
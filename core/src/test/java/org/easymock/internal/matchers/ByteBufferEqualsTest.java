@@ -0,0 +1,139 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.internal.matchers;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Heap and direct buffers compared by {@link ByteBufferEquals}.
+ */
+public class ByteBufferEqualsTest {
+
+    @Test
+    public void matches() {
+        ByteBuffer expected = buffer(20);
+        ByteBufferEquals matcher = new ByteBufferEquals(expected);
+
+        assertTrue(matcher.matches(buffer(20)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(20);
+        direct.put(buffer(20));
+        direct.rewind();
+        assertTrue(matcher.matches(direct));
+        assertFalse(matcher.matches(buffer(19)));
+        assertFalse(matcher.matches(null));
+        assertFalse(matcher.matches(new byte[20]));
+
+        ByteBuffer other = buffer(20);
+        other.put(17, (byte) 0);
+        assertFalse(matcher.matches(other));
+    }
+
+    @Test
+    public void expectedPositionFrozenAtRecording() {
+        ByteBuffer expected = buffer(4);
+        ByteBufferEquals matcher = new ByteBufferEquals(expected);
+        expected.position(2);
+
+        assertTrue(matcher.matches(buffer(4)));
+        assertEquals(2, expected.position());
+    }
+
+    @Test
+    public void expectedContentShared() {
+        ByteBuffer expected = buffer(4);
+        ByteBufferEquals matcher = new ByteBufferEquals(expected);
+        expected.put(0, (byte) 5);
+
+        assertFalse(matcher.matches(buffer(4)));
+    }
+
+    @Test
+    public void serializable() throws Exception {
+        ByteBuffer expected = buffer(21);
+        expected.position(1);
+        ByteBufferEquals matcher = new ByteBufferEquals(expected);
+        ByteBuffer shifted = buffer(21);
+        shifted.position(1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(matcher);
+        }
+        ByteBufferEquals deserialized;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            deserialized = (ByteBufferEquals) ois.readObject();
+        }
+
+        assertTrue(deserialized.matches(shifted));
+        assertFalse(deserialized.matches(buffer(20)));
+        assertEquals(1, expected.position());
+        StringBuffer description = new StringBuffer();
+        deserialized.appendTo(description);
+        assertEquals("bufferEq([1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, ... 20 bytes])", description.toString());
+    }
+
+    @Test
+    public void matchesNull() {
+        ByteBufferEquals matcher = new ByteBufferEquals(null);
+        assertTrue(matcher.matches(null));
+        assertFalse(matcher.matches(buffer(1)));
+    }
+
+    @Test
+    public void compare() {
+        ByteBuffer a = buffer(20);
+        // Same content starting at index 1
+        ByteBuffer b = ByteBuffer.allocate(21);
+        b.position(1);
+        b.put(buffer(20));
+        b.position(1);
+        assertEquals(-1, ByteBufferEquals.compare(a, b));
+
+        b.put(19, (byte) 0);
+        assertEquals(18, ByteBufferEquals.compare(a, b));
+
+        b.put(4, (byte) 0);
+        assertEquals(3, ByteBufferEquals.compare(a, b));
+    }
+
+    @Test
+    public void compareDifferentByteOrders() {
+        ByteBuffer a = buffer(20);
+        ByteBuffer b = buffer(20).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(-1, ByteBufferEquals.compare(a, b));
+
+        b.put(11, (byte) 0);
+        assertEquals(11, ByteBufferEquals.compare(a, b));
+    }
+
+    /** A buffer of {@code size} bytes with a value equal to their index */
+    private static ByteBuffer buffer(int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put(i, (byte) i);
+        }
+        return buffer;
+    }
+}
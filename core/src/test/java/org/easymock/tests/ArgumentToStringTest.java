@@ -15,13 +15,23 @@
  */
 package org.easymock.tests;
 
+import org.easymock.EasyMock;
 import org.easymock.internal.ArgumentToString;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
 /**
@@ -103,4 +113,104 @@ public class ArgumentToStringTest {
             .collect(Collectors.joining(", ")) + "... (length=101)]";
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void testCollectionRenderedLikeToString() {
+        List<Object> list = new ArrayList<>(Arrays.asList("a", 1, null, new int[0], Collections.singletonMap("k", "v")));
+        list.add(list);
+        assertEquals(list.toString(), ArgumentToString.argumentToString(list));
+    }
+
+    @Test
+    public void testMapRenderedLikeToString() {
+        Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("a", Arrays.asList(1, 2));
+        map.put(null, 'c');
+        map.put(3, map);
+        assertEquals(map.toString(), ArgumentToString.argumentToString(map));
+    }
+
+    @Test
+    public void testCollectionTooLong() {
+        List<Integer> list = IntStream.range(0, 1_000_000).boxed().collect(Collectors.toList());
+        String expected = IntStream.range(0, 100)
+            .mapToObj(Integer::toString)
+            .collect(Collectors.joining(", ", "[", "... (size=1000000)]"));
+        assertEquals(expected, ArgumentToString.argumentToString(list));
+    }
+
+    public static class NonJdkList<E> extends ArrayList<E> {
+        private static final long serialVersionUID = 1L;
+    }
+
+    public static class DescribedList<E> extends ArrayList<E> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String toString() {
+            return "described";
+        }
+    }
+
+    @Test
+    public void testNonJdkCollectionWithJdkToStringTooLong() {
+        List<Integer> list = new NonJdkList<>();
+        IntStream.range(0, 1_000).forEach(list::add);
+        String expected = IntStream.range(0, 100)
+            .mapToObj(Integer::toString)
+            .collect(Collectors.joining(", ", "[", "... (size=1000)]"));
+        assertEquals(expected, ArgumentToString.argumentToString(list));
+    }
+
+    @Test
+    public void testCollectionWithOwnToString() {
+        List<Integer> list = new DescribedList<>();
+        list.add(1);
+        assertEquals("described", ArgumentToString.argumentToString(list));
+    }
+
+    @Test
+    public void testLimitsFromProperties() {
+        String previousElements = setEasyMockProperty(EasyMock.MAX_ARGUMENT_ELEMENTS, "2");
+        String previousLength = setEasyMockProperty(EasyMock.MAX_ARGUMENT_LENGTH, "3");
+        String previousDepth = setEasyMockProperty(EasyMock.MAX_ARGUMENT_DEPTH, "2");
+        try {
+            assertEquals("\"abc\"... (length=6)", ArgumentToString.argumentToString("abcdef"));
+            assertEquals("\"abc\"", ArgumentToString.argumentToString("abc"));
+            assertEquals("[1 (int), 2 (int)... (length=3)]", ArgumentToString.argumentToString(new int[] { 1, 2, 3 }));
+
+            Map<String, Object> map = new HashMap<>();
+            map.put("key", new StringBuilder("long value"));
+            assertEquals("{key=lon... (length=10)}", ArgumentToString.argumentToString(map));
+
+            Object nested = Arrays.asList(Arrays.asList(Arrays.asList(1)));
+            assertEquals("[[[...]]]", ArgumentToString.argumentToString(nested));
+            assertEquals("[[[...]]]", ArgumentToString.argumentToString(new Object[][][] { { { 1 } } }));
+        } finally {
+            setEasyMockProperty(EasyMock.MAX_ARGUMENT_ELEMENTS, previousElements);
+            setEasyMockProperty(EasyMock.MAX_ARGUMENT_LENGTH, previousLength);
+            setEasyMockProperty(EasyMock.MAX_ARGUMENT_DEPTH, previousDepth);
+        }
+    }
+
+    @Test
+    public void testInvalidLimitIgnored() {
+        String previous = setEasyMockProperty(EasyMock.MAX_ARGUMENT_ELEMENTS, "abc");
+        try {
+            assertEquals("[1 (int)]", ArgumentToString.argumentToString(new int[] { 1 }));
+        } finally {
+            setEasyMockProperty(EasyMock.MAX_ARGUMENT_ELEMENTS, previous);
+        }
+    }
+
+    @Test
+    public void testAppendToStringBuilderAndAppendable() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        ArgumentToString.appendArgument("a", builder);
+        assertEquals("\"a\"", builder.toString());
+
+        StringWriter writer = new StringWriter();
+        ArgumentToString.appendArgument(new String[] { "a" }, writer);
+        assertEquals("[\"a\"]", writer.toString());
+    }
 }
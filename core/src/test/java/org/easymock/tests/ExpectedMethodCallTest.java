@@ -15,12 +15,17 @@
  */
 package org.easymock.tests;
 
+import org.easymock.IArgumentMatcher;
 import org.easymock.internal.ExpectedInvocation;
 import org.easymock.internal.Invocation;
+import org.easymock.internal.matchers.Any;
+import org.easymock.internal.matchers.Equals;
+import org.easymock.internal.matchers.Same;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 
 import static org.junit.Assert.*;
 
@@ -31,11 +36,13 @@ public class ExpectedMethodCallTest {
 
     private ExpectedInvocation call;
 
+    private Method equals;
+
     @Before
     public void setup() throws SecurityException, NoSuchMethodException {
         Object[] arguments1 = new Object[] { "" };
-        Method m = Object.class.getMethod("equals", Object.class);
-        call = new ExpectedInvocation(new Invocation(null, m, arguments1), null);
+        equals = Object.class.getMethod("equals", Object.class);
+        call = new ExpectedInvocation(new Invocation(null, equals, arguments1), null);
     }
 
     @Test
@@ -47,4 +54,105 @@ public class ExpectedMethodCallTest {
             assertEquals("hashCode() is not implemented", expected.getMessage());
         }
     }
+
+    @Test
+    public void rawArgumentsMatching() {
+        assertTrue(call.matches(invocation("")));
+        assertTrue(call.matches(invocation(new String(""))));
+        assertFalse(call.matches(invocation("a")));
+        assertFalse(call.matches(invocation((Object) null)));
+        assertFalse(call.matches(invocation("", "")));
+    }
+
+    @Test
+    public void equalsMatching() {
+        assertMatches(new Equals(null), null, 1);
+        assertMatches(new Equals(1), 1, 1L);
+        assertMatches(new Equals(1L), 1L, 1);
+        assertMatches(new Equals((short) 1), (short) 1, (byte) 1);
+        assertMatches(new Equals((byte) -1), (byte) -1, (short) -1);
+        assertMatches(new Equals('a'), 'a', (int) 'a');
+        assertMatches(new Equals(true), true, false);
+        assertMatches(new Equals(Float.NaN), Float.NaN, 0f);
+        assertMatches(new Equals(0.0), 0.0, -0.0);
+        assertMatches(new Equals(Double.NaN), Double.NaN, Float.NaN);
+        assertMatches(new Equals("a"), new String("a"), "b");
+        assertMatches(new Equals(Collections.singletonList(1)), Collections.singletonList(1), Collections.emptyList());
+    }
+
+    @Test
+    public void sameAndAnyMatching() {
+        String expected = "a";
+        assertMatches(new Same(expected), expected, new String(expected));
+        assertTrue(matcherCall(Any.ANY).matches(invocation((Object) null)));
+    }
+
+    @Test
+    public void customMatching() {
+        IArgumentMatcher matcher = new IArgumentMatcher() {
+            @Override
+            public boolean matches(Object argument) {
+                return argument instanceof Integer && (Integer) argument > 0;
+            }
+
+            @Override
+            public void appendTo(StringBuffer buffer) {
+                buffer.append("positive");
+            }
+        };
+        assertMatches(matcher, 2, -2);
+    }
+
+    @Test
+    public void equalsSubclassDescription() {
+        // Overriding only the StringBuffer version, like matchers written before EasyMock 4.3
+        IArgumentMatcher matcher = new Equals("a") {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void appendTo(StringBuffer buffer) {
+                buffer.append("custom");
+            }
+        };
+        Invocation invocation = new Invocation("mock", equals, new Object[] { "a" });
+        ExpectedInvocation call = new ExpectedInvocation(invocation, Collections.singletonList(matcher));
+        assertEquals("mock.equals(custom)", call.toString());
+    }
+
+    @Test
+    public void builderDescription() {
+        IArgumentMatcher matcher = new IArgumentMatcher() {
+            @Override
+            public boolean matches(Object argument) {
+                return true;
+            }
+
+            @Override
+            public void appendTo(StringBuffer buffer) {
+                buffer.append("buffer");
+            }
+
+            @Override
+            public void appendTo(StringBuilder builder) {
+                builder.append("builder");
+            }
+        };
+        Invocation invocation = new Invocation("mock", equals, new Object[] { "a" });
+        ExpectedInvocation call = new ExpectedInvocation(invocation, Collections.singletonList(matcher));
+        assertEquals("mock.equals(builder)", call.toString());
+    }
+
+    private void assertMatches(IArgumentMatcher matcher, Object matching, Object notMatching) {
+        ExpectedInvocation expected = matcherCall(matcher);
+        assertTrue(expected.matches(invocation(matching)));
+        assertFalse(expected.matches(invocation(notMatching)));
+    }
+
+    private ExpectedInvocation matcherCall(IArgumentMatcher matcher) {
+        return new ExpectedInvocation(invocation((Object) null), Collections.singletonList(matcher));
+    }
+
+    private Invocation invocation(Object... arguments) {
+        return new Invocation(null, equals, arguments);
+    }
 }
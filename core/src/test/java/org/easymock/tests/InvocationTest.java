@@ -117,4 +117,22 @@ public class InvocationTest {
         assertEquals("aMethod()", invocation.toString());
 
     }
+
+    @Test
+    public void testVarargsExpanded() throws Exception {
+        Method m = IVarArgs.class.getMethod("withVarargsInt", int.class, int[].class);
+        Invocation invocation = new Invocation(new Object(), m, new Object[] { 1, new int[] { 2, 3 } });
+        assertArrayEquals(new Object[] { 1, 2, 3 }, invocation.getArguments());
+        assertSame(invocation.getArguments(), invocation.getArguments());
+
+        m = IVarArgs.class.getMethod("withVarargsString", int.class, String[].class);
+        invocation = new Invocation(new Object(), m, new Object[] { 1, null });
+        assertArrayEquals(new Object[] { 1, null }, invocation.getArguments());
+    }
+
+    @Test
+    public void testNoCaptures() {
+        call.validateCaptures();
+        call.clearCaptures();
+    }
 }
@@ -87,4 +87,23 @@ public class ObjectMethodsTest {
                 toString, new Object[0]));
     }
 
+    @Test
+    public void toStringIsComputedOnce() throws Throwable {
+        ObjectMethodsFilter filter = new ObjectMethodsFilter(Object.class, null, null);
+        Method toString = Object.class.getMethod("toString");
+        DummyProxy proxy = new DummyProxy();
+        Object first = filter.invoke(proxy, toString, new Object[0]);
+        assertSame(first, filter.invoke(proxy, toString, new Object[0]));
+    }
+
+    @Test
+    public void objectMethodsOfClassMocks() {
+        MockedClass classMock = createMock(MockedClass.class);
+        replay(classMock);
+        assertEquals("EasyMock for " + MockedClass.class.toString(), classMock.toString());
+        assertEquals(System.identityHashCode(classMock), classMock.hashCode());
+        assertEquals(classMock, classMock);
+        assertNotEquals(classMock, mock);
+        verify(classMock);
+    }
 }
@@ -23,7 +23,10 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 
 import org.easymock.IAnswer;
+import org.easymock.internal.AssertionErrorWrapper;
 import org.easymock.internal.MockInvocationHandler;
+import org.easymock.internal.RuntimeExceptionWrapper;
+import org.easymock.internal.ThrowableWrapper;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -144,4 +147,22 @@ public class StacktraceTest {
                 Util.startWithClass(expected, answer.getClass()));
         }
     }
+
+    @Test
+    public void wrappersHaveNoStacktrace() {
+        assertEquals(0, new RuntimeExceptionWrapper(new RuntimeException()).getStackTrace().length);
+        assertEquals(0, new AssertionErrorWrapper(new AssertionError()).getStackTrace().length);
+        assertEquals(0, new ThrowableWrapper(new Throwable()).getStackTrace().length);
+    }
+
+    @Test
+    public void thrownExceptionHasCallerStacktrace() {
+        RuntimeException expected = new RuntimeException();
+        expect(mock.oneArg(1)).andStubThrow(expected);
+        replay(mock);
+
+        RuntimeException actual = assertThrows(RuntimeException.class, () -> mock.oneArg(1));
+        assertSame(expected, actual);
+        assertTrue(actual.getStackTrace().length > 0);
+    }
 }
@@ -15,6 +15,9 @@
  */
 package org.easymock.tests;
 
+import org.easymock.EasyMock;
+import org.easymock.IArgumentMatcher;
+import org.easymock.IMocksControl;
 import org.junit.Test;
 
 import static org.easymock.EasyMock.*;
@@ -27,6 +30,8 @@ public class UsageUnorderedTest {
 
     public interface Interface {
         void method(int number);
+
+        int other(int number);
     }
 
     @Test
@@ -57,4 +62,87 @@ public class UsageUnorderedTest {
                             .getMessage());
         }
     }
+
+    @Test
+    public void declarationOrderPerMockAndMethod() {
+        IMocksControl control = createControl();
+        Interface first = control.createMock(Interface.class);
+        Interface second = control.createMock(Interface.class);
+
+        expect(first.other(anyInt())).andReturn(1);
+        expect(second.other(anyInt())).andReturn(2);
+        first.method(3);
+        expect(first.other(3)).andReturn(3);
+        expect(second.other(3)).andReturn(4);
+
+        control.replay();
+
+        assertEquals(2, second.other(3));
+        assertEquals(4, second.other(3));
+        first.method(3);
+        assertEquals(1, first.other(3));
+        assertEquals(3, first.other(3));
+
+        control.verify();
+    }
+
+    @Test
+    public void candidatesAreCapped() {
+        String previous = setEasyMockProperty(EasyMock.MAX_UNEXPECTED_CALL_CANDIDATES, "2");
+        try {
+            Interface mock = createMock(Interface.class);
+
+            for (int i = 0; i < 4; i++) {
+                expect(mock.other(i)).andReturn(i);
+            }
+
+            replay(mock);
+
+            try {
+                mock.other(5);
+                fail("Should fail");
+            } catch (AssertionError expected) {
+                assertEquals("\n  Unexpected method call Interface.other(5 (int)):"
+                        + "\n    Interface.other(0 (int)): expected: 1, actual: 0"
+                        + "\n    Interface.other(1 (int)): expected: 1, actual: 0"
+                        + "\n    ... 2 more", expected.getMessage());
+            }
+        } finally {
+            setEasyMockProperty(EasyMock.MAX_UNEXPECTED_CALL_CANDIDATES, previous);
+        }
+    }
+
+    @Test
+    public void messageRenderedOnlyWhenRead() {
+        int[] rendered = new int[1];
+        Interface mock = createMock(Interface.class);
+
+        reportMatcher(new IArgumentMatcher() {
+            @Override
+            public boolean matches(Object argument) {
+                return false;
+            }
+
+            @Override
+            public void appendTo(StringBuffer buffer) {
+                rendered[0]++;
+                buffer.append("never");
+            }
+        });
+        mock.method(0);
+
+        replay(mock);
+
+        try {
+            mock.method(1);
+            fail("Should fail");
+        } catch (AssertionError expected) {
+            assertEquals(0, rendered[0]);
+            String message = expected.getMessage();
+            assertEquals(1, rendered[0]);
+            assertSame(message, expected.getMessage());
+            assertEquals("\n  Unexpected method call Interface.method(1 (int)):"
+                    + "\n    Interface.method(never): expected: 1, actual: 0", message);
+        }
+    }
 }
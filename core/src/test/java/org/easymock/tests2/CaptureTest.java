@@ -18,7 +18,10 @@ package org.easymock.tests2;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.easymock.Capture;
 import org.easymock.CaptureType;
@@ -47,8 +50,11 @@ public class CaptureTest {
     }
 
     private Capture<Integer> testCaptureType(CaptureType type) {
+        return testCapture(Capture.newInstance(type));
+    }
+
+    private Capture<Integer> testCapture(Capture<Integer> captured) {
         IMethods mock = createMock(IMethods.class);
-        Capture<Integer> captured = Capture.newInstance(type);
 
         expect(mock.oneArg(captureInt(captured))).andReturn("1");
         expect(mock.oneArg(anyInt())).andReturn("1");
@@ -88,6 +94,171 @@ public class CaptureTest {
         assertEquals(Arrays.asList(0, 2, 3, 4, 6, 7), captured.getValues());
     }
 
+    @Test
+    public void testCaptureLastN() {
+        Capture<Integer> captured = testCapture(newCapture(CaptureType.LAST_N, 3));
+        assertEquals(Arrays.asList(4, 6, 7), captured.getValues());
+    }
+
+    @Test
+    public void testCaptureLastNKeepsOnlyTheLastValues() {
+        IMethods mock = createMock(IMethods.class);
+        Capture<Integer> captured = newCapture(CaptureType.LAST_N, 5);
+        expect(mock.oneArg(captureInt(captured))).andStubReturn("1");
+
+        replay(mock);
+
+        for (int i = 0; i < 1000; i++) {
+            mock.oneArg(i);
+        }
+
+        assertEquals(Arrays.asList(995, 996, 997, 998, 999), captured.getValues());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCaptureLastNWithoutSize() {
+        newCapture(CaptureType.LAST_N);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCaptureSizeWithoutLastN() {
+        newCapture(CaptureType.ALL, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCaptureLastNEmpty() {
+        newCapture(CaptureType.LAST_N, 0);
+    }
+
+    @Test
+    public void testGetValuesIsALiveView() {
+        Capture<String> captured = newCapture(CaptureType.ALL);
+        List<String> values = captured.getValues();
+        assertTrue(values.isEmpty());
+
+        captured.setValue("a");
+        captured.setValue("b");
+        assertEquals(Arrays.asList("a", "b"), values);
+
+        values.add(1, "c");
+        values.set(0, null);
+        assertEquals(Arrays.asList(null, "c", "b"), values);
+        assertEquals("[null, c, b]", captured.toString());
+
+        assertEquals("c", values.remove(1));
+        assertEquals(Arrays.asList(null, "b"), values);
+
+        values.clear();
+        assertFalse(captured.hasCaptured());
+    }
+
+    @Test
+    public void testLastNViewAfterWrapping() {
+        Capture<String> captured = newCapture(CaptureType.LAST_N, 3);
+        for (String s : new String[] { "a", "b", "c", "d", "e" }) {
+            captured.setValue(s);
+        }
+        List<String> values = captured.getValues();
+        assertEquals(Arrays.asList("c", "d", "e"), values);
+
+        values.remove(0);
+        values.add("f");
+        assertEquals(Arrays.asList("d", "e", "f"), values);
+
+        // Full, so the oldest is dropped
+        values.add(0, "g");
+        assertEquals(Arrays.asList("g", "e", "f"), values);
+    }
+
+    @Test
+    public void testPrimitiveCaptureFallsBackToObjects() {
+        IMethods mock = createMock(IMethods.class);
+        Capture<Long> captured = newCapture(CaptureType.ALL);
+        expect(mock.oneArg(captureLong(captured))).andStubReturn("1");
+
+        replay(mock);
+
+        mock.oneArg(1L);
+        mock.oneArg(2L);
+        captured.getValues().add(null);
+
+        assertEquals(Arrays.asList(1L, 2L, null), captured.getValues());
+    }
+
+    @Test
+    public void testPrimitiveCaptures() {
+        IMethods mock = createMock(IMethods.class);
+        Capture<Integer> ints = newCapture(CaptureType.ALL);
+        Capture<Double> doubles = newCapture(CaptureType.LAST_N, 2);
+        expect(mock.oneArg(captureInt(ints))).andStubReturn("1");
+        expect(mock.oneArg(captureDouble(doubles))).andStubReturn("2");
+
+        replay(mock);
+
+        for (int i = 0; i < 10; i++) {
+            mock.oneArg(i);
+            mock.oneArg((double) i);
+        }
+
+        assertEquals(10, ints.getValues().size());
+        assertEquals(9, (int) ints.getValues().get(9));
+        assertEquals(Arrays.asList(8.0, 9.0), doubles.getValues());
+        ints.reset();
+        assertFalse(ints.hasCaptured());
+    }
+
+    @Test
+    public void testStreamingCapture() {
+        List<Integer> streamed = new ArrayList<>();
+        Capture<Integer> captured = testCapture(newCapture(streamed::add));
+
+        assertEquals(Arrays.asList(0, 2, 3, 4, 6, 7), streamed);
+        assertFalse(captured.hasCaptured());
+        assertTrue(captured.getValues().isEmpty());
+    }
+
+    @Test
+    public void testStreamingCaptureWithTransformation() {
+        LongAdder totalLength = new LongAdder();
+        Capture<String> captured = newCapture((String s) -> (long) s.length(), totalLength::add);
+
+        IMethods mock = createMock(IMethods.class);
+        expect(mock.oneArg(capture(captured))).andStubReturn("1");
+        expect(mock.oneArg(eq(false))).andStubReturn("2");
+
+        replay(mock);
+
+        mock.oneArg("ab");
+        mock.oneArg("cde");
+        mock.oneArg(false);
+
+        assertEquals(5, totalLength.sum());
+        assertFalse(captured.hasCaptured());
+    }
+
+    @Test
+    public void testStreamingCaptureOnlyGetsMatchingCalls() {
+        List<Integer> streamed = new ArrayList<>();
+        Capture<Integer> captured = newCapture(streamed::add);
+
+        IMethods mock = createMock(IMethods.class);
+        expect(mock.oneArg(and(captureInt(captured), gt(5)))).andReturn("1");
+        expect(mock.oneArg(anyInt())).andReturn("2");
+
+        replay(mock);
+
+        mock.oneArg(3);
+        mock.oneArg(6);
+
+        verify(mock);
+        assertEquals(Arrays.asList(6), streamed);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testStreamingCaptureNeedsAConsumer() {
+        newCapture((java.util.function.Consumer<Object>) null);
+    }
+
     @Test
     public void testCaptureNone() {
         Capture<Integer> captured = testCaptureType(CaptureType.NONE);
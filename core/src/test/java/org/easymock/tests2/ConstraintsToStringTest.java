@@ -20,6 +20,7 @@ import org.easymock.internal.matchers.*;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -176,4 +177,16 @@ public class ConstraintsToStringTest {
         new ArrayEquals(new Object[] { 1, "a", null }).appendTo(buffer);
         assertEquals("[1 (int), \"a\", null]", buffer.toString());
     }
+
+    @Test
+    public void byteBufferEqualsToString() {
+        new ByteBufferEquals(ByteBuffer.wrap(new byte[] { 1, -2 })).appendTo(buffer);
+        assertEquals("bufferEq([1, -2])", buffer.toString());
+    }
+
+    @Test
+    public void largeByteBufferEqualsToString() {
+        new ByteBufferEquals(ByteBuffer.allocate(1000)).appendTo(buffer);
+        assertEquals("bufferEq([0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, ... 1000 bytes])", buffer.toString());
+    }
 }
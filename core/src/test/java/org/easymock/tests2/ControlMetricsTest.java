@@ -0,0 +1,164 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.tests2;
+
+import org.easymock.ControlMetrics;
+import org.easymock.IMocksControl;
+import org.easymock.InvocationMetrics;
+import org.easymock.tests.IMethods;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Metrics collected on the calls replayed by a control.
+ */
+public class ControlMetricsTest {
+
+    @Test
+    public void countsCalls() {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        ControlMetrics metrics = control.collectMetrics();
+        assertSame(metrics, control.collectMetrics());
+
+        expect(mock.oneArg(1)).andReturn("a");
+        expect(mock.oneArg(2)).andReturn("b");
+        expect(mock.oneArg("x")).andStubReturn("x");
+        expect(mock.oneArg(anyLong())).andAnswer(() -> "c");
+        control.replay();
+
+        mock.oneArg(2);
+        mock.oneArg(1);
+        mock.oneArg("x");
+        mock.oneArg("x");
+        mock.oneArg(3L);
+        try {
+            mock.oneArg(4);
+            fail("Unexpected");
+        } catch (AssertionError e) {
+            // expected
+        }
+
+        assertEquals(6, metrics.getCallCount());
+        assertEquals(2, metrics.getStubHitCount());
+        assertEquals(1, metrics.getUnexpectedCallCount());
+        // oneArg(2) tried 2 expectations, oneArg(1) 1, oneArg(3L) 1. oneArg(4) tried oneArg(2) and oneArg(1) again
+        // for the error message. The raw stub on "x" is hashed
+        assertEquals(6, metrics.getMatchCount());
+        assertTrue(metrics.getMatchingNanos() > 0);
+        assertTrue(metrics.getAnswerNanos() > 0);
+
+        Map<String, InvocationMetrics> methods = metrics.getMethods();
+        assertEquals(3, methods.size());
+        InvocationMetrics intMetrics = methods.get("IMethods.oneArg(int)");
+        assertEquals(3, intMetrics.getCallCount());
+        assertEquals(1, intMetrics.getUnexpectedCallCount());
+        assertEquals(2, methods.get("IMethods.oneArg(String)").getStubHitCount());
+        assertEquals(1, methods.get("IMethods.oneArg(long)").getCallCount());
+
+        assertTrue(metrics.toString().startsWith("calls=6, stubHits=2, unexpectedCalls=1, matches=6, "));
+    }
+
+    @Test
+    public void notCollectedByDefault() {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        expect(mock.oneArg(1)).andReturn("a");
+        control.replay();
+        mock.oneArg(1);
+        control.verify();
+    }
+
+    @Test
+    public void keptOnReset() {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        ControlMetrics metrics = control.collectMetrics();
+        expect(mock.oneArg(1)).andReturn("a");
+        control.replay();
+        mock.oneArg(1);
+
+        control.resetToNice();
+        assertSame(metrics, control.collectMetrics());
+        control.replay();
+        mock.oneArg(2);
+
+        assertEquals(2, metrics.getCallCount());
+        assertEquals(1, metrics.getMatchCount());
+    }
+
+    @Test
+    public void notInReplay() {
+        IMocksControl control = createControl();
+        control.replay();
+        try {
+            control.collectMetrics();
+            fail("Only allowed in record state");
+        } catch (IllegalStateException e) {
+            assertEquals("This method must not be called in replay state.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void mxBean() throws Exception {
+        IMocksControl control = createNiceControl();
+        IMethods mock = control.createMock(IMethods.class);
+        ControlMetrics metrics = control.collectMetrics();
+        control.replay();
+        mock.oneArg(1);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            assertEquals(new ObjectName("org.easymock:type=ControlMetrics,name=\"test\""), name);
+            assertEquals(1L, server.getAttribute(name, "CallCount"));
+            TabularData methods = (TabularData) server.getAttribute(name, "Methods");
+            assertEquals(1, methods.size());
+
+            // Registering again moves it
+            ObjectName other = metrics.registerMBean("other");
+            assertFalse(server.isRegistered(name));
+            assertTrue(server.isRegistered(other));
+            name = other;
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+        metrics.unregisterMBean();
+    }
+
+    @Test
+    public void mxBeanNameTaken() {
+        ControlMetrics metrics = createControl().collectMetrics();
+        metrics.registerMBean("taken");
+        try {
+            createControl().collectMetrics().registerMBean("taken");
+            fail("Already registered");
+        } catch (IllegalStateException e) {
+            assertEquals("Can't register the metrics as taken", e.getMessage());
+        } finally {
+            metrics.unregisterMBean();
+        }
+    }
+}
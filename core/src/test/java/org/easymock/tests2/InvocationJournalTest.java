@@ -0,0 +1,254 @@
+/*
+ * Copyright 2001-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.tests2;
+
+import org.easymock.IMocksControl;
+import org.easymock.InvocationJournal;
+import org.easymock.tests.IMethods;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * Replayed calls journaled in a memory-mapped file.
+ */
+public class InvocationJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<InvocationJournal.Entry> entries(InvocationJournal journal) {
+        List<InvocationJournal.Entry> entries = new ArrayList<>();
+        journal.forEach(entries::add);
+        return entries;
+    }
+
+    @Test
+    public void recordsReplayedCalls() throws IOException {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        Path file = folder.getRoot().toPath().resolve("journal");
+        InvocationJournal journal = control.journal(file, 4096);
+
+        expect(mock.oneArg(1)).andReturn("a");
+        expect(mock.oneArg("b")).andReturn("b");
+        expect(mock.oneArg((Object) null)).andReturn("c");
+        mock.twoArgumentMethod(1, 2);
+        expect(mock.oneArg(aryEq(new int[] { 1, 2 }))).andReturn("d");
+        control.replay();
+
+        long before = System.currentTimeMillis();
+        mock.oneArg(1);
+        mock.oneArg("b");
+        mock.oneArg((Object) null);
+        mock.twoArgumentMethod(1, 2);
+        mock.oneArg(new int[] { 1, 2 });
+        control.verify();
+
+        assertSame(file, journal.getFile());
+        assertEquals(5, journal.size());
+        assertEquals(5, journal.getTotalCount());
+
+        List<InvocationJournal.Entry> entries = entries(journal);
+        assertEquals(5, entries.size());
+
+        InvocationJournal.Entry entry = entries.get(0);
+        assertEquals(0, entry.getSequence());
+        assertTrue(entry.getTimestamp() >= before);
+        assertEquals(Thread.currentThread().getId(), entry.getThreadId());
+        assertEquals(System.identityHashCode(mock), entry.getMockIdentity());
+        assertEquals("IMethods.oneArg", entry.getMockAndMethodName());
+        assertArrayEquals(new Object[] { 1 }, entry.getArguments());
+        assertFalse(entry.isTruncated());
+        assertEquals("#0 IMethods.oneArg(1 (int))", entry.toString());
+
+        assertArrayEquals(new Object[] { "b" }, entries.get(1).getArguments());
+        assertArrayEquals(new Object[] { null }, entries.get(2).getArguments());
+        assertArrayEquals(new Object[] { 1, 2 }, entries.get(3).getArguments());
+        assertEquals("IMethods.twoArgumentMethod", entries.get(3).getMockAndMethodName());
+        assertArrayEquals(new Object[] { "int[2]" }, entries.get(4).getArguments());
+        assertNotEquals(entries.get(0).getMethodId(), entries.get(1).getMethodId());
+
+        journal.close();
+
+        try (InvocationJournal read = InvocationJournal.open(file)) {
+            assertEquals(5, read.size());
+            List<InvocationJournal.Entry> reread = entries(read);
+            assertEquals(entries.toString(), reread.toString());
+        }
+    }
+
+    @Test
+    public void oldestCallsAreOverwritten() throws IOException {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        InvocationJournal journal = control.journal(folder.newFile().toPath(), 4096);
+        expect(mock.oneArg(anyLong())).andReturn("a").anyTimes();
+        control.replay();
+
+        for (long i = 0; i < 1000; i++) {
+            mock.oneArg(i);
+        }
+
+        assertEquals(1000, journal.getTotalCount());
+        assertTrue(journal.size() > 0);
+        assertTrue(journal.size() < 1000);
+
+        long expected = 1000 - journal.size();
+        for (InvocationJournal.Entry entry : journal) {
+            assertEquals(expected, entry.getSequence());
+            assertArrayEquals(new Object[] { expected }, entry.getArguments());
+            expected++;
+        }
+        assertEquals(1000, expected);
+        journal.close();
+    }
+
+    @Test
+    public void overwrittenWhileIterating() throws IOException {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        InvocationJournal journal = control.journal(folder.newFile().toPath(), 4096);
+        expect(mock.oneArg(anyInt())).andReturn("a").anyTimes();
+        control.replay();
+
+        mock.oneArg(1);
+        Iterator<InvocationJournal.Entry> it = journal.iterator();
+        for (int i = 0; i < 1000; i++) {
+            mock.oneArg(i);
+        }
+        try {
+            it.next();
+            fail("The entry was overwritten");
+        } catch (ConcurrentModificationException e) {
+            assertEquals("Entry 0 was overwritten", e.getMessage());
+        }
+        journal.close();
+    }
+
+    @Test
+    public void bigCallsAreTruncated() throws IOException {
+        IMocksControl control = createNiceControl();
+        IMethods mock = control.createMock(IMethods.class);
+        InvocationJournal journal = control.journal(folder.newFile().toPath(), 4096);
+        control.replay();
+
+        Object[] arguments = new Object[100];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = "abcdefghijklmnopqrstuvwxyz";
+        }
+        mock.varargsObject(1, arguments);
+
+        InvocationJournal.Entry entry = journal.iterator().next();
+        assertTrue(entry.isTruncated());
+        assertTrue(entry.getArguments().length < 101);
+        assertEquals(1, entry.getArguments()[0]);
+        journal.close();
+    }
+
+    @Test
+    public void closedJournalStopsRecording() throws IOException {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        InvocationJournal journal = control.journal(folder.newFile().toPath(), 4096);
+        expect(mock.oneArg(anyInt())).andReturn("a").times(2);
+        control.replay();
+
+        mock.oneArg(1);
+        journal.close();
+        mock.oneArg(2);
+
+        assertEquals(1, journal.size());
+    }
+
+    @Test
+    public void keptOnReset() throws IOException {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        InvocationJournal journal = control.journal(folder.newFile().toPath(), 4096);
+        expect(mock.oneArg(1)).andReturn("a");
+        control.replay();
+        mock.oneArg(1);
+
+        control.resetToNice();
+        control.replay();
+        mock.oneArg(2);
+
+        assertEquals(2, journal.size());
+        journal.close();
+    }
+
+    @Test
+    public void previousJournalClosed() throws IOException {
+        IMocksControl control = createControl();
+        IMethods mock = control.createMock(IMethods.class);
+        InvocationJournal first = control.journal(folder.newFile().toPath(), 4096);
+        InvocationJournal second = control.journal(folder.newFile().toPath(), 4096);
+        expect(mock.oneArg(1)).andReturn("a");
+        control.replay();
+        mock.oneArg(1);
+
+        assertEquals(0, first.size());
+        assertEquals(1, second.size());
+        second.close();
+    }
+
+    @Test
+    public void notInReplay() {
+        IMocksControl control = createControl();
+        control.replay();
+        try {
+            control.journal(folder.getRoot().toPath().resolve("journal"), 4096);
+            fail("Only allowed in record state");
+        } catch (IllegalStateException e) {
+            assertEquals("This method must not be called in replay state.", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooSmall() {
+        createControl().journal(folder.getRoot().toPath().resolve("journal"), 100);
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void cantCreate() {
+        createControl().journal(folder.getRoot().toPath().resolve("missing").resolve("journal"), 4096);
+    }
+
+    @Test
+    public void notAJournal() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[8192]);
+        try {
+            InvocationJournal.open(file);
+            fail("Not a journal");
+        } catch (IOException e) {
+            assertEquals("Not an EasyMock invocation journal: " + file, e.getMessage());
+        }
+    }
+}
@@ -90,4 +90,20 @@ public class PartialMockingTest {
         ConstructorArgs constructorArgs = new ConstructorArgs(cstr, -5);
         createMockBuilder(ArrayList.class).withConstructor(-5).createMock();
     }
+
+    @Test
+    public void testPartialMock_SameConstructorTwice() {
+        A first = createMockBuilder(A.class).withConstructor("first").createMock();
+        A second = createMockBuilder(A.class).withConstructor("second").createMock();
+        assertEquals("first", first.s);
+        assertEquals("second", second.s);
+    }
+
+    @Test
+    public void testPartialMock_ExceptionInConstructorIsTheCause() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+            () -> createMockBuilder(ArrayList.class).withConstructor(-5).createMock());
+        assertEquals("Failed to instantiate mock calling constructor: Exception in constructor", e.getMessage());
+        assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+    }
 }
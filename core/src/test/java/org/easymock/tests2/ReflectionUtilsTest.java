@@ -70,6 +70,14 @@ public class ReflectionUtilsTest {
         assertArrayEquals(new Class[] { int.class }, c.getParameterTypes());
     }
 
+    @Test
+    public void testGetConstructor_cached() throws NoSuchMethodException {
+        Constructor<A> first = ReflectionUtils.getConstructor(A.class, 5);
+        Constructor<A> second = ReflectionUtils.getConstructor(A.class, 6);
+        assertSame(first, second);
+        assertNotSame(first, ReflectionUtils.getConstructor(A.class, 5L));
+    }
+
     @Test
     public void testGetConstructor_protected() throws NoSuchMethodException {
         Constructor<A> c = ReflectionUtils.getConstructor(A.class, 5L);
@@ -83,4 +83,26 @@ public class StubTest {
         verify(mock);
     }
 
+    @Test
+    public void firstRegisteredStubWins() {
+        IMethods nice = createNiceMock(IMethods.class);
+        IMethods other = createNiceMock(IMethods.class);
+        expect(nice.oneArg("1")).andStubReturn("raw 1");
+        expect(nice.oneArg(startsWith("2"))).andStubReturn("matcher 2");
+        expect(nice.oneArg("2")).andStubReturn("raw 2");
+        expect(nice.oneArg("1")).andStubReturn("raw 1 again");
+        expect(nice.oneArg((String) isNull())).andStubReturn("null");
+        expect(other.oneArg("1")).andStubReturn("other 1");
+
+        replay(nice, other);
+
+        assertEquals("raw 1", nice.oneArg("1"));
+        assertEquals("matcher 2", nice.oneArg("2"));
+        assertEquals("matcher 2", nice.oneArg("22"));
+        assertEquals("null", nice.oneArg((String) null));
+        assertNull(nice.oneArg("3"));
+        assertEquals("other 1", other.oneArg("1"));
+
+        verify(nice, other);
+    }
 }
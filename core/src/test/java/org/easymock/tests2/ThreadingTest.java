@@ -15,11 +15,16 @@
  */
 package org.easymock.tests2;
 
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.IMocksControl;
 import org.easymock.internal.AssertionErrorWrapper;
 import org.easymock.internal.MocksBehavior;
 import org.easymock.tests.IMethods;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
@@ -186,4 +191,164 @@ public class ThreadingTest {
         replay(mock);
         assertEquals(1, mock.compareTo(null));
     }
+
+    @Test
+    public void testStubsAreNotSynchronized() throws Throwable {
+        CountDownLatch inAnswer = new CountDownLatch(1);
+        CountDownLatch stubCalled = new CountDownLatch(1);
+
+        IMethods mock = createNiceMock(IMethods.class);
+        expect(mock.oneArg(true)).andAnswer(() -> {
+            inAnswer.countDown();
+            // Waits for the other thread to use the stub while holding the mock lock
+            return stubCalled.await(5, TimeUnit.SECONDS) ? "answered" : "timeout";
+        });
+        expect(mock.oneArg("test")).andStubReturn("stub");
+        replay(mock);
+
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> answer = service.submit(() -> mock.oneArg(true));
+            assertTrue(inAnswer.await(5, TimeUnit.SECONDS));
+
+            assertEquals("stub", mock.oneArg("test"));
+            assertNull(mock.oneArg("nice"));
+            stubCalled.countDown();
+
+            assertEquals("answered", answer.get());
+        } finally {
+            service.shutdown();
+        }
+        verify(mock);
+    }
+
+    @Test
+    public void testLockPerMethod() throws Throwable {
+        CountDownLatch inAnswer = new CountDownLatch(1);
+        CountDownLatch otherMethodCalled = new CountDownLatch(1);
+
+        IMethods mock = createMock(IMethods.class);
+        lockPerMethod(mock, true);
+        expect(mock.oneArg(true)).andAnswer(() -> {
+            inAnswer.countDown();
+            // Waits for the other thread to use another method while holding the lock of this one
+            return otherMethodCalled.await(5, TimeUnit.SECONDS) ? "answered" : "timeout";
+        });
+        expect(mock.oneArg("test")).andReturn("result").times(2);
+        replay(mock);
+
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> answer = service.submit(() -> mock.oneArg(true));
+            assertTrue(inAnswer.await(5, TimeUnit.SECONDS));
+
+            assertEquals("result", mock.oneArg("test"));
+            assertEquals("result", mock.oneArg("test"));
+            otherMethodCalled.countDown();
+
+            assertEquals("answered", answer.get());
+        } finally {
+            service.shutdown();
+        }
+        verify(mock);
+    }
+
+    @Test
+    public void testLockPerMethod_parallelCalls() throws Throwable {
+        IMethods mock = createMock(IMethods.class);
+        lockPerMethod(mock, true);
+        expect(mock.oneArg("a")).andReturn("a").times(THREAD_COUNT * 100);
+        expect(mock.oneArg(1)).andReturn("1").times(THREAD_COUNT * 100);
+        replay(mock);
+
+        ExecutorService service = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                boolean even = i % 2 == 0;
+                futures.add(service.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        assertEquals(even ? "a" : "1", even ? mock.oneArg("a") : mock.oneArg(1));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            service.shutdown();
+        }
+        verify(mock);
+    }
+
+    @Test
+    public void testCaptureFromParallelCalls() throws Throwable {
+        Capture<Integer> captured = newCapture(CaptureType.ALL);
+        Capture<Integer> last = newCapture(CaptureType.LAST_N, 3);
+
+        IMethods mock = createMock(IMethods.class);
+        lockPerMethod(mock, true);
+        expect(mock.oneArg((Object) and(capture(captured), capture(last)))).andReturn("a").anyTimes();
+        expect(mock.oneArg(and(captureInt(captured), captureInt(last)))).andReturn("1").anyTimes();
+        replay(mock);
+
+        ExecutorService service = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                int thread = i;
+                futures.add(service.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        if (thread % 2 == 0) {
+                            mock.oneArg((Object) (thread * 1000 + j));
+                        } else {
+                            mock.oneArg(thread * 1000 + j);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            service.shutdown();
+        }
+
+        List<Integer> values = captured.getValues();
+        assertEquals(THREAD_COUNT * 1000, values.size());
+        // Each thread values are kept in call order
+        int[] lastPerThread = new int[THREAD_COUNT];
+        Arrays.fill(lastPerThread, -1);
+        for (int i : values) {
+            assertTrue(i % 1000 > lastPerThread[i / 1000]);
+            lastPerThread[i / 1000] = i % 1000;
+        }
+        assertEquals(3, last.getValues().size());
+    }
+
+    @Test
+    public void testLockPerMethod_unexpectedCallListsSameMethod() {
+        IMethods mock = createMock(IMethods.class);
+        lockPerMethod(mock, true);
+        expect(mock.oneArg("a")).andReturn("a");
+        expect(mock.oneArg(1)).andReturn("1");
+        replay(mock);
+
+        AssertionError error = assertThrows(AssertionError.class, () -> mock.oneArg("b"));
+        assertTrue(error.getMessage(), error.getMessage().contains("IMethods.oneArg(\"a\"): expected: 1, actual: 0"));
+        // oneArg(int) is guarded by another lock
+        assertFalse(error.getMessage(), error.getMessage().contains("IMethods.oneArg(1)"));
+    }
+
+    @Test
+    public void testLockPerMethod_notWithCheckOrder() {
+        IMocksControl control = createStrictControl();
+        control.lockPerMethod(true);
+        IMethods mock = control.createMock(IMethods.class);
+        expect(mock.oneArg("a")).andReturn("a");
+        expect(mock.oneArg(1)).andReturn("1");
+        control.replay();
+
+        assertThrows(AssertionError.class, () -> mock.oneArg(1));
+    }
 }
@@ -21,10 +21,17 @@ import static org.junit.Assert.*;
 import org.easymock.tests.IMethods;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author OFFIS, Tammo Freese
  */
 public class UsageMatchersTest {
+
+    public interface Channel {
+        int write(ByteBuffer buffer);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void additionalMatchersFailAtReplay() {
 
@@ -47,4 +54,37 @@ public class UsageMatchersTest {
         verify(mock);
     }
 
+    @Test
+    public void byteBuffersAreMatchedWithBufferEq() {
+        Channel mock = mock(Channel.class);
+        expect(mock.write(bufferEq(ByteBuffer.wrap(new byte[] { 0, 1, 2, 3 }, 1, 2)))).andReturn(2);
+
+        replay(mock);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(10);
+        direct.put(new byte[] { 9, 1, 2 });
+        direct.position(1);
+        direct.limit(3);
+
+        assertEquals(2, mock.write(direct));
+        assertEquals(1, direct.position());
+        assertEquals(3, direct.limit());
+
+        verify(mock);
+    }
+
+    @Test
+    public void byteBuffersWithOtherContentDontMatch() {
+        Channel mock = mock(Channel.class);
+        expect(mock.write(bufferEq(ByteBuffer.wrap(new byte[] { 1, 2 })))).andReturn(2);
+
+        replay(mock);
+
+        try {
+            mock.write(ByteBuffer.wrap(new byte[] { 1, 3 }));
+            fail("Should fail");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().contains("Channel.write(bufferEq([1, 2])): expected: 1, actual: 0"));
+        }
+    }
 }